@@ -1,28 +1,66 @@
 package com.oceanami.parkour;
 
 import com.oceanami.parkour.cache.CourseCache;
+import com.oceanami.parkour.cache.CourseSnapshotStore;
+import com.oceanami.parkour.cache.LeaderboardCache;
+import com.oceanami.parkour.cache.PersonalBestCache;
 import com.oceanami.parkour.commands.ParkourCommand;
 import com.oceanami.parkour.commands.RestartCommand;
 import com.oceanami.parkour.database.CourseDAO;
 import com.oceanami.parkour.database.DatabaseManager;
+import com.oceanami.parkour.database.PlayerTimeWriteQueue;
 import com.oceanami.parkour.listeners.PlayerListener;
+import com.oceanami.parkour.listeners.WorldListener;
+import com.oceanami.parkour.manager.EffectDispatcher;
+import com.oceanami.parkour.manager.GhostManager;
 import com.oceanami.parkour.manager.LocationCache;
 import com.oceanami.parkour.manager.ParkourManager;
+import com.oceanami.parkour.manager.RunClock;
+import com.oceanami.parkour.manager.SessionRegistry;
 import com.oceanami.parkour.manager.UIManager;
-import com.oceanami.parkour.scheduler.ParkourTask;
+import com.oceanami.parkour.scheduler.ActionBarTimer;
+import com.oceanami.parkour.scheduler.TimingWheel;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 
 public final class ParkourPlugin extends JavaPlugin {
 
+    @FunctionalInterface
+    private interface LoadingPhase {
+        void run() throws SQLException;
+    }
+
+    public static final Component LOADING_MESSAGE = Component.text("Parkour is loading, please try again in a moment.").color(NamedTextColor.YELLOW);
+
     private DatabaseManager databaseManager;
+    private PlayerTimeWriteQueue playerTimeWriteQueue;
+    private PersonalBestCache personalBestCache;
+    private LeaderboardCache leaderboardCache;
+    private SessionRegistry sessionRegistry;
+    private RunClock runClock;
+    private GhostManager ghostManager;
+    private TimingWheel timingWheel;
     private ParkourManager parkourManager;
     private UIManager uiManager;
     private CourseDAO courseDAO;
     private CourseCache courseCache;
     private LocationCache locationCache;
+    private CourseSnapshotStore courseSnapshotStore;
+    private PlayerListener playerListener;
+    private ActionBarTimer actionBarTimer;
+    private EffectDispatcher effectDispatcher;
+    private volatile boolean ready;
+    // Set when a startup step failed, so the next reload runs the whole startup again
+    private volatile boolean startupFailed;
+    // Completed once the schema is migrated; personal bests are only read or compared after that
+    private final CompletableFuture<Void> schemaReady = new CompletableFuture<>();
 
     @Override
     public void onEnable() {
@@ -33,25 +71,39 @@ public final class ParkourPlugin extends JavaPlugin {
 
         // 2. Setup managers and DAOs (order is important)
         this.databaseManager = new DatabaseManager(this);
+        this.playerTimeWriteQueue = new PlayerTimeWriteQueue(this, this.databaseManager);
+        this.personalBestCache = new PersonalBestCache(this);
+        this.leaderboardCache = new LeaderboardCache(this.databaseManager, getLogger());
+        this.timingWheel = new TimingWheel();
+        getServer().getScheduler().runTaskTimer(this, timingWheel::tick, 1L, 1L);
         this.uiManager = new UIManager(this);
         this.locationCache = new LocationCache(this);
         this.courseCache = new CourseCache(this.databaseManager, getLogger());
-        this.courseDAO = new CourseDAO(this, this.databaseManager, courseCache, locationCache);
-        this.parkourManager = new ParkourManager(this, this.uiManager, courseCache, locationCache);
+        this.courseSnapshotStore = new CourseSnapshotStore(this, courseCache, locationCache);
+        this.courseDAO = new CourseDAO(this, this.databaseManager, courseCache, locationCache, courseSnapshotStore);
+        this.sessionRegistry = new SessionRegistry();
+        this.runClock = new RunClock(this);
+        this.ghostManager = new GhostManager(this);
+        this.parkourManager = new ParkourManager(this, this.uiManager, courseCache, locationCache, sessionRegistry, runClock);
 
-        // 3. Initialize database and load caches
-        this.databaseManager.initializeDatabase();
-        locationCache.loadLocations();
-        courseCache.loadCourses();
+        // 3. Initialize database and warm caches off the main thread; plates and commands answer
+        // "loading" until this finishes
+        warmUp();
 
         // 4. Register commands safely
         registerCommands();
 
         // 5. Register listeners with correct dependencies
-        getServer().getPluginManager().registerEvents(new PlayerListener(this.parkourManager, locationCache, this), this);
+        this.playerListener = new PlayerListener(locationCache, this);
+        getServer().getPluginManager().registerEvents(this.playerListener, this);
+        getServer().getPluginManager().registerEvents(new WorldListener(locationCache), this);
 
-        // 6. Start the scheduler task
-        new ParkourTask(this).runTaskTimerAsynchronously(this, 0L, 1L); // Run every tick (50ms)
+        // 6. Start the action bar timer and ghost recording
+        this.actionBarTimer = new ActionBarTimer(this);
+        actionBarTimer.start();
+        ghostManager.start();
+        this.effectDispatcher = new EffectDispatcher(this);
+        effectDispatcher.start();
 
         getLogger().info("Parkour plugin has been enabled successfully!");
     }
@@ -60,6 +112,17 @@ public final class ParkourPlugin extends JavaPlugin {
     public void onDisable() {
         getLogger().info("Parkour plugin has been disabled!");
 
+        // Write out buffered times before the pool goes away
+        if (this.playerTimeWriteQueue != null) {
+            this.playerTimeWriteQueue.shutdown();
+        }
+        if (this.courseSnapshotStore != null) {
+            this.courseSnapshotStore.shutdown();
+        }
+        if (this.ghostManager != null) {
+            this.ghostManager.shutdown();
+        }
+
         // Close database connection
         if (this.databaseManager != null) {
             this.databaseManager.closeConnection();
@@ -74,19 +137,133 @@ public final class ParkourPlugin extends JavaPlugin {
 
         // Re-initialize the managers to apply the new settings
         this.uiManager = new UIManager(this);
-        this.locationCache = new LocationCache(this);
-        this.courseCache = new CourseCache(this.databaseManager, getLogger());
-        this.courseDAO = new CourseDAO(this, this.databaseManager, this.courseCache, this.locationCache);
-        this.parkourManager = new ParkourManager(this, this.uiManager, this.courseCache, this.locationCache);
-
-        // Reload caches
-        this.locationCache.loadLocations();
-        this.courseCache.loadCourses();
+        this.courseDAO = new CourseDAO(this, this.databaseManager, this.courseCache, this.locationCache, this.courseSnapshotStore);
+        // Sessions live in the registry, so runs in progress carry over to the new manager. The clock
+        // is kept too, since their start times are on its timeline. The listener and the action bar
+        // look the manager up on every use, so the old one and its effect profiles are dropped
+        this.parkourManager = new ParkourManager(this, this.uiManager, this.courseCache, this.locationCache, this.sessionRegistry, this.runClock);
+        actionBarTimer.stop();
+        this.actionBarTimer = new ActionBarTimer(this);
+        actionBarTimer.start();
+        effectDispatcher.stop();
+        this.effectDispatcher = new EffectDispatcher(this);
+        effectDispatcher.start();
 
         // Re-register commands to use new manager instances
         registerCommands();
 
-        getLogger().info("Parkour plugin configuration reloaded successfully!");
+        if (startupFailed) {
+            getLogger().info("Parkour did not finish starting up, running startup again.");
+            warmUp();
+            return;
+        }
+
+        // Reload caches in place off the main thread; only courses changed since the last load are read again
+        CompletableFuture.allOf(
+                        runPhase("locations", locationCache::loadLocations),
+                        runPhase("courses", courseCache::loadCourses))
+                .whenComplete((ignored, ex) -> {
+                    if (ex != null) {
+                        getLogger().log(Level.SEVERE, "Could not reload parkour caches", ex);
+                    } else {
+                        courseSnapshotStore.scheduleWrite();
+                        getLogger().info("Parkour plugin configuration reloaded successfully!");
+                    }
+                });
+    }
+
+    /**
+     * Restores courses from the on-disk snapshot so plates work straight away, then creates the
+     * schema and loads the independent caches in parallel on the database executor. The readiness
+     * gate opens as soon as courses are available from either source.
+     */
+    private void warmUp() {
+        long startedAt = System.nanoTime();
+        startupFailed = false;
+        // A repeated startup keeps serving what the first one restored
+        int restored = ready ? 0 : courseSnapshotStore.restore();
+        if (restored > 0) {
+            ready = true;
+            getLogger().info("Restored " + restored + " courses from the snapshot in "
+                    + (System.nanoTime() - startedAt) / 1_000_000 + "ms, validating against the database.");
+        }
+
+        CompletableFuture<Void> schema = runPhase("schema", databaseManager::initializeDatabase);
+        schema.thenRunAsync(() -> {
+            // Times can be read and stored from here on, whatever happens to the caches. Players
+            // who joined earlier skipped loading their personal bests
+            playerTimeWriteQueue.start();
+            schemaReady.complete(null);
+            getServer().getOnlinePlayers().forEach(player -> personalBestCache.load(player.getUniqueId()));
+        }, getServer().getScheduler().getMainThreadExecutor(this));
+        schema.thenCompose(ignored -> CompletableFuture.allOf(
+                        runPhase("locations", locationCache::loadLocations),
+                        runPhase("courses", courseCache::loadCourses),
+                        runPhase("leaderboards", leaderboardCache::loadLeaderboards)))
+                .whenCompleteAsync((ignored, ex) -> {
+                    if (ex != null) {
+                        startupFailed = true;
+                        if (schema.isCompletedExceptionally()) {
+                            // Runs could not be stored, so courses restored from the snapshot close again
+                            ready = false;
+                            getLogger().log(Level.SEVERE, "Could not migrate the database schema, courses stay unavailable until /parkour reload succeeds", ex);
+                        } else {
+                            getLogger().log(Level.SEVERE, ready
+                                    ? "Could not validate the course snapshot, serving possibly stale courses until /parkour reload succeeds"
+                                    : "Parkour startup failed, courses stay unavailable until /parkour reload succeeds", ex);
+                        }
+                        return;
+                    }
+                    courseSnapshotStore.scheduleWrite();
+                    ready = true;
+                    getLogger().info("Parkour is ready after " + (System.nanoTime() - startedAt) / 1_000_000 + "ms.");
+                }, getServer().getScheduler().getMainThreadExecutor(this));
+    }
+
+    /**
+     * Runs one loading step on the database executor and logs how long it took. Bulk loads are
+     * exempt from the per-task timeout. A failing step completes the future exceptionally.
+     */
+    private CompletableFuture<Void> runPhase(String phase, LoadingPhase task) {
+        return databaseManager.getExecutor().submit(() -> {
+            long startedAt = System.nanoTime();
+            try {
+                task.run();
+            } catch (SQLException e) {
+                throw new CompletionException("Loading phase '" + phase + "' failed", e);
+            }
+            getLogger().info("Loading phase '" + phase + "' took " + (System.nanoTime() - startedAt) / 1_000_000 + "ms.");
+            return null;
+        }, 0L);
+    }
+
+    /**
+     * Whether courses are available, either restored from the snapshot or loaded from the database.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether a startup step failed; the next reload then runs the startup again.
+     */
+    public boolean hasStartupFailed() {
+        return startupFailed;
+    }
+
+    /**
+     * Whether the database schema is up to date, so personal bests can be read and written. Courses
+     * restored from the snapshot can be {@linkplain #isReady() ready} before this.
+     */
+    public boolean isSchemaReady() {
+        return schemaReady.isDone();
+    }
+
+    /**
+     * Completes on the main thread once the schema is up to date.
+     */
+    public CompletableFuture<Void> whenSchemaReady() {
+        return schemaReady;
     }
 
     private void registerCommands() {
@@ -99,7 +276,7 @@ public final class ParkourPlugin extends JavaPlugin {
 
         PluginCommand restartCommand = getCommand("restart");
         if (restartCommand != null) {
-            restartCommand.setExecutor(new RestartCommand(this.parkourManager));
+            restartCommand.setExecutor(new RestartCommand(this, this.parkourManager));
         } else {
             getLogger().log(Level.WARNING, "Command 'restart' not found, please check plugin.yml");
         }
@@ -107,7 +284,15 @@ public final class ParkourPlugin extends JavaPlugin {
 
     // Getters for other classes to use
     public DatabaseManager getDatabaseManager() { return databaseManager; }
+    public PlayerTimeWriteQueue getPlayerTimeWriteQueue() { return playerTimeWriteQueue; }
+    public PersonalBestCache getPersonalBestCache() { return personalBestCache; }
+    public LeaderboardCache getLeaderboardCache() { return leaderboardCache; }
     public ParkourManager getParkourManager() { return parkourManager; }
     public UIManager getUiManager() { return uiManager; }
     public CourseDAO getCourseDAO() { return courseDAO; }
+    public PlayerListener getPlayerListener() { return playerListener; }
+    public ActionBarTimer getActionBarTimer() { return actionBarTimer; }
+    public EffectDispatcher getEffectDispatcher() { return effectDispatcher; }
+    public GhostManager getGhostManager() { return ghostManager; }
+    public TimingWheel getTimingWheel() { return timingWheel; }
 }
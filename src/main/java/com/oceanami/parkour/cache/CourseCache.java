@@ -7,10 +7,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -28,28 +30,47 @@ public class CourseCache {
         this.logger = logger;
     }
 
-    public void loadCourses() {
+    public void loadCourses() throws SQLException {
         String sql = "SELECT id, name, ready FROM courses";
-        try (Connection conn = dbManager.getConnection();
+        try (Connection conn = dbManager.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
+            Map<String, Course> loaded = new HashMap<>();
             while (rs.next()) {
                 int id = rs.getInt("id");
                 String name = rs.getString("name");
                 boolean ready = rs.getBoolean("ready");
-                courseCache.put(name.toLowerCase(), new Course(id, name, ready));
+                loaded.put(name.toLowerCase(), new Course(id, name, ready));
             }
+            // Replace entries one by one so lookups never miss a course during a reload
+            courseCache.putAll(loaded);
+            courseCache.keySet().retainAll(loaded.keySet());
             logger.info("Loaded " + courseCache.size() + " parkour courses into cache.");
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Could not load parkour courses from database!", e);
         }
     }
 
+    public void applySnapshot(CourseSnapshot snapshot) {
+        snapshot.getCourses().forEach(course ->
+                courseCache.put(course.name().toLowerCase(), new Course(course.id(), course.name(), course.ready())));
+    }
+
+    public Collection<Course> getCourses() {
+        return Collections.unmodifiableCollection(courseCache.values());
+    }
+
     public Optional<Course> getCourse(String name) {
         return Optional.ofNullable(courseCache.get(name.toLowerCase()));
     }
 
+    /**
+     * Replaces the cached course with a ready copy, so readers on other threads only ever see a
+     * complete {@link Course}.
+     */
+    public void markReady(String name) {
+        courseCache.computeIfPresent(name.toLowerCase(), (key, course) -> course.withReady(true));
+    }
+
     public void addCourse(Course course) {
         courseCache.put(course.getName().toLowerCase(), course);
     }
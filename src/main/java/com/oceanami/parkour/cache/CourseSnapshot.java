@@ -0,0 +1,170 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.StoredLocation;
+import com.oceanami.parkour.model.TriggerType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary copy of every course and its locations, used to serve plates before the
+ * database has answered. Plates are derived from the start, finish and checkpoint locations.
+ * <p>
+ * Layout (big-endian): magic, format version, course count, then per course its id, name, ready
+ * flag, revision, locations and cuboid regions. A CRC32 of everything before it closes the file.
+ */
+public final class CourseSnapshot {
+
+    public record LocationEntry(String type, int checkpointOrder, StoredLocation location) {
+    }
+
+    public record CourseEntry(int id, String name, boolean ready, long revision, List<LocationEntry> locations,
+                              List<CuboidRegion> regions) {
+    }
+
+    private static final int MAGIC = 0x504B534E; // "PKSN"
+    private static final int FORMAT_VERSION = 2;
+    private static final int CHECKSUM_BYTES = Long.BYTES;
+
+    private final List<CourseEntry> courses;
+
+    public CourseSnapshot(List<CourseEntry> courses) {
+        this.courses = List.copyOf(courses);
+    }
+
+    public List<CourseEntry> getCourses() {
+        return courses;
+    }
+
+    /**
+     * Reads a snapshot file and decodes it. The file is read into memory rather than mapped, so
+     * it can be replaced straight after, which a live mapping prevents on Windows.
+     */
+    public static CourseSnapshot read(Path file) throws IOException {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    static CourseSnapshot decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 3 * Integer.BYTES + CHECKSUM_BYTES) {
+            throw new IOException("Snapshot is truncated");
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.limit(buffer.limit() - CHECKSUM_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if (crc.getValue() != buffer.getLong(buffer.limit() - CHECKSUM_BYTES)) {
+            throw new IOException("Snapshot checksum does not match");
+        }
+
+        try {
+            if (body.getInt() != MAGIC) {
+                throw new IOException("Not a parkour snapshot");
+            }
+            int version = body.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int courseCount = body.getInt();
+            List<CourseEntry> courses = new ArrayList<>(courseCount);
+            for (int i = 0; i < courseCount; i++) {
+                int id = body.getInt();
+                String name = readString(body);
+                boolean ready = body.get() != 0;
+                long revision = body.getLong();
+                int locationCount = body.getInt();
+                List<LocationEntry> locations = new ArrayList<>(locationCount);
+                for (int j = 0; j < locationCount; j++) {
+                    String type = readString(body);
+                    int order = body.getInt();
+                    StoredLocation loc = new StoredLocation(readString(body), body.getDouble(), body.getDouble(),
+                            body.getDouble(), body.getFloat(), body.getFloat());
+                    locations.add(new LocationEntry(type, order, loc));
+                }
+                int regionCount = body.getInt();
+                List<CuboidRegion> regions = new ArrayList<>(regionCount);
+                for (int j = 0; j < regionCount; j++) {
+                    regions.add(new CuboidRegion(body.getInt(), TriggerType.valueOf(readString(body)), body.getInt(), readString(body),
+                            body.getInt(), body.getInt(), body.getInt(), body.getInt(), body.getInt(), body.getInt()));
+                }
+                courses.add(new CourseEntry(id, name, ready, revision, List.copyOf(locations), List.copyOf(regions)));
+            }
+            return new CourseSnapshot(courses);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot is truncated", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Snapshot contains an unknown trigger type", e);
+        }
+    }
+
+    /**
+     * Serializes the snapshot, including its trailing checksum.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(courses.size());
+            for (CourseEntry course : courses) {
+                out.writeInt(course.id());
+                writeString(out, course.name());
+                out.writeBoolean(course.ready());
+                out.writeLong(course.revision());
+                out.writeInt(course.locations().size());
+                for (LocationEntry entry : course.locations()) {
+                    StoredLocation loc = entry.location();
+                    writeString(out, entry.type());
+                    out.writeInt(entry.checkpointOrder());
+                    writeString(out, loc.worldName());
+                    out.writeDouble(loc.x());
+                    out.writeDouble(loc.y());
+                    out.writeDouble(loc.z());
+                    out.writeFloat(loc.yaw());
+                    out.writeFloat(loc.pitch());
+                }
+                out.writeInt(course.regions().size());
+                for (CuboidRegion region : course.regions()) {
+                    out.writeInt(region.id());
+                    writeString(out, region.type().name());
+                    out.writeInt(region.checkpointOrder());
+                    writeString(out, region.worldName());
+                    out.writeInt(region.minX());
+                    out.writeInt(region.minY());
+                    out.writeInt(region.minZ());
+                    out.writeInt(region.maxX());
+                    out.writeInt(region.maxY());
+                    out.writeInt(region.maxZ());
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cannot happen for an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] utf8 = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
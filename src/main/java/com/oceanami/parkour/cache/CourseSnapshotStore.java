@@ -0,0 +1,140 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.manager.CompiledCourse;
+import com.oceanami.parkour.manager.LocationCache;
+import com.oceanami.parkour.model.Course;
+import com.oceanami.parkour.model.StoredLocation;
+import org.bukkit.Bukkit;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Keeps {@code courses.snapshot} in the data folder in step with the course caches. Writes are
+ * coalesced, run off the main thread and replace the file atomically; identical content is not
+ * rewritten.
+ */
+public class CourseSnapshotStore {
+
+    private static final long WRITE_DELAY_TICKS = 20L;
+
+    private final ParkourPlugin plugin;
+    private final CourseCache courseCache;
+    private final LocationCache locationCache;
+    private final Path file;
+    private final boolean enabled;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private byte[] lastWritten = new byte[0];
+
+    public CourseSnapshotStore(ParkourPlugin plugin, CourseCache courseCache, LocationCache locationCache) {
+        this.plugin = plugin;
+        this.courseCache = courseCache;
+        this.locationCache = locationCache;
+        this.file = plugin.getDataFolder().toPath().resolve("courses.snapshot");
+        this.enabled = plugin.getConfig().getBoolean("snapshot.enabled", true);
+    }
+
+    /**
+     * Fills the course and location caches from the snapshot file, if there is a valid one.
+     *
+     * @return the number of courses restored
+     */
+    public int restore() {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            CourseSnapshot snapshot = CourseSnapshot.read(file);
+            courseCache.applySnapshot(snapshot);
+            locationCache.applySnapshot(snapshot);
+            synchronized (this) {
+                lastWritten = snapshot.encode();
+            }
+            return snapshot.getCourses().size();
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Ignoring unreadable course snapshot, courses will load from the database", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Rewrites the snapshot shortly, merging with any write that is already pending.
+     */
+    public void scheduleWrite() {
+        if (!enabled || !writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, this::writeIfScheduled, WRITE_DELAY_TICKS);
+    }
+
+    /**
+     * Writes a pending snapshot immediately, used while the plugin shuts down.
+     */
+    public void shutdown() {
+        writeIfScheduled();
+    }
+
+    private void writeIfScheduled() {
+        if (writeScheduled.compareAndSet(true, false)) {
+            write(capture());
+        }
+    }
+
+    private CourseSnapshot capture() {
+        List<CourseSnapshot.CourseEntry> courses = new ArrayList<>();
+        for (Course course : courseCache.getCourses()) {
+            Optional<CompiledCourse> compiled = locationCache.getCourse(course.getId());
+            courses.add(new CourseSnapshot.CourseEntry(course.getId(), course.getName(), course.isReady(),
+                    compiled.map(CompiledCourse::revision).orElse(-1L),
+                    compiled.map(CourseSnapshotStore::locationEntries).orElse(List.of()),
+                    compiled.map(c -> List.copyOf(c.regions().values())).orElse(List.of())));
+        }
+        return new CourseSnapshot(courses);
+    }
+
+    private static List<CourseSnapshot.LocationEntry> locationEntries(CompiledCourse course) {
+        List<CourseSnapshot.LocationEntry> entries = new ArrayList<>();
+        addEntry(entries, "START", 0, course.start());
+        addEntry(entries, "FINISH", 0, course.finish());
+        for (int order = 0; order < course.checkpointLimit(); order++) {
+            addEntry(entries, "CHECKPOINT", order, course.checkpoint(order));
+        }
+        addEntry(entries, "CUSTOM_RESTART", 0, course.customRestartPoint());
+        addEntry(entries, "CUSTOM_RESET", 0, course.customResetPoint());
+        return entries;
+    }
+
+    private static void addEntry(List<CourseSnapshot.LocationEntry> entries, String type, int order, StoredLocation loc) {
+        if (loc != null) {
+            entries.add(new CourseSnapshot.LocationEntry(type, order, loc));
+        }
+    }
+
+    private synchronized void write(CourseSnapshot snapshot) {
+        byte[] encoded = snapshot.encode();
+        if (Arrays.equals(encoded, lastWritten)) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(temp, encoded);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastWritten = encoded;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not write course snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.model.GhostTrack;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Personal best ghosts, one gzip file per course in the {@code ghosts} folder holding the fastest
+ * recorded run of each player. A course's file is read when one of its ghosts is needed and kept
+ * in memory while the course is {@linkplain #retain(int) retained}, i.e. while someone runs it;
+ * after that it is dropped once nothing is left to write. Changed courses are rewritten coalesced
+ * and atomically. Reads and writes run on one file thread of their own, so large ghost files never
+ * hold up the database executor.
+ * <p>
+ * Layout (big-endian, gzipped): magic, format version, track count, then per track the player id,
+ * name, world, time, frame count and the encoded frames.
+ */
+public class GhostStore {
+
+    private static final int MAGIC = 0x504B4748; // "PKGH"
+    private static final int FORMAT_VERSION = 1;
+    private static final long WRITE_DELAY_MILLIS = 2000L;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
+
+    private final ParkourPlugin plugin;
+    private final Path folder;
+    private final Map<Integer, CompletableFuture<Map<UUID, GhostTrack>>> courses = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    // Runs in progress and offers not merged yet, per course
+    private final Map<Integer, Integer> references = new HashMap<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private final ScheduledThreadPoolExecutor io;
+
+    public GhostStore(ParkourPlugin plugin) {
+        this.plugin = plugin;
+        this.folder = plugin.getDataFolder().toPath().resolve("ghosts");
+        this.io = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "Parkour-Ghosts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The pending delayed write is done by shutdown() itself
+        io.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * The player's ghost on a course, once the course's file has been read.
+     */
+    public CompletableFuture<Optional<GhostTrack>> get(int courseId, UUID playerId) {
+        return load(courseId).thenApply(tracks -> Optional.ofNullable(tracks.get(playerId)));
+    }
+
+    /**
+     * Keeps a finished run if it is faster than the player's stored ghost on that course.
+     */
+    public void offer(GhostTrack track) {
+        int courseId = track.courseId();
+        retain(courseId);
+        load(courseId).whenComplete((tracks, ex) -> {
+            if (tracks != null && tracks.merge(track.playerId(), track, GhostStore::faster) == track) {
+                dirty.add(courseId);
+                scheduleWrite();
+            }
+            release(courseId);
+        });
+    }
+
+    /**
+     * Keeps a course's ghosts in memory until a matching {@link #release(int)}.
+     */
+    public synchronized void retain(int courseId) {
+        references.merge(courseId, 1, Integer::sum);
+    }
+
+    public synchronized void release(int courseId) {
+        if (references.computeIfPresent(courseId, (id, count) -> count > 1 ? count - 1 : null) == null) {
+            evictIfUnused(courseId);
+        }
+    }
+
+    /**
+     * Drops a course's ghosts from memory unless it is retained or has changes to write; they are
+     * read from its file again when next needed.
+     */
+    private synchronized void evictIfUnused(int courseId) {
+        if (!references.containsKey(courseId) && !dirty.contains(courseId)) {
+            courses.remove(courseId);
+        }
+    }
+
+    /**
+     * Writes pending changes immediately, used while the plugin shuts down.
+     */
+    public void shutdown() {
+        // Reads still queued finish first, and with them the offers waiting on those reads
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Ghost files were still being read on shutdown, some new ghosts may not be saved.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeScheduled.set(false);
+        writeDirty();
+    }
+
+    public int getLoadedCourseCount() {
+        return courses.size();
+    }
+
+    public int getLoadedTrackCount() {
+        return loadedTracks().mapToInt(Map::size).sum();
+    }
+
+    public long getLoadedBytes() {
+        return loadedTracks().flatMap(tracks -> tracks.values().stream()).mapToLong(track -> track.data().length).sum();
+    }
+
+    private Stream<Map<UUID, GhostTrack>> loadedTracks() {
+        return courses.values().stream()
+                .filter(future -> future.isDone() && !future.isCompletedExceptionally())
+                .map(CompletableFuture::join);
+    }
+
+    private CompletableFuture<Map<UUID, GhostTrack>> load(int courseId) {
+        CompletableFuture<Map<UUID, GhostTrack>> loading = courses.computeIfAbsent(courseId, id -> {
+            try {
+                return CompletableFuture.supplyAsync(() -> readOrEmpty(id), io);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        if (loading.isCompletedExceptionally()) {
+            // Only after shutdown; nothing is kept for a later attempt
+            courses.remove(courseId, loading);
+        }
+        return loading;
+    }
+
+    private Map<UUID, GhostTrack> readOrEmpty(int courseId) {
+        try {
+            return read(courseId);
+        } catch (NoSuchFileException e) {
+            return new ConcurrentHashMap<>();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Ignoring unreadable ghost file of course " + courseId, e);
+            return new ConcurrentHashMap<>();
+        }
+    }
+
+    private void scheduleWrite() {
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                io.schedule(() -> {
+                    if (writeScheduled.compareAndSet(true, false)) {
+                        writeDirty();
+                    }
+                }, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the course stays dirty and shutdown() writes it
+                writeScheduled.set(false);
+            }
+        }
+    }
+
+    private void writeDirty() {
+        // Not the store's own lock, which the main thread takes to retain courses
+        synchronized (writeLock) {
+            for (Integer courseId : dirty) {
+                // Taken before the course stops being dirty, so it cannot be evicted in between
+                CompletableFuture<Map<UUID, GhostTrack>> tracks = courses.get(courseId);
+                dirty.remove(courseId);
+                if (tracks != null && tracks.isDone() && !tracks.isCompletedExceptionally()) {
+                    write(courseId, tracks.join());
+                }
+                evictIfUnused(courseId);
+            }
+        }
+    }
+
+    private Path file(int courseId) {
+        return folder.resolve(courseId + ".ghosts");
+    }
+
+    private Map<UUID, GhostTrack> read(int courseId) throws IOException {
+        Map<UUID, GhostTrack> tracks = new ConcurrentHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file(courseId)))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a ghost file of a supported version");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID playerId = new UUID(in.readLong(), in.readLong());
+                String playerName = in.readUTF();
+                String worldName = in.readUTF();
+                long timeMillis = in.readLong();
+                int frames = in.readInt();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                tracks.put(playerId, new GhostTrack(playerId, playerName, courseId, worldName, timeMillis, frames, data));
+            }
+        }
+        return tracks;
+    }
+
+    private void write(int courseId, Map<UUID, GhostTrack> tracks) {
+        Path file = file(courseId);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(folder);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                // Copy first so the count matches the tracks written
+                GhostTrack[] snapshot = tracks.values().toArray(new GhostTrack[0]);
+                out.writeInt(snapshot.length);
+                for (GhostTrack track : snapshot) {
+                    out.writeLong(track.playerId().getMostSignificantBits());
+                    out.writeLong(track.playerId().getLeastSignificantBits());
+                    out.writeUTF(track.playerName());
+                    out.writeUTF(track.worldName());
+                    out.writeLong(track.timeMillis());
+                    out.writeInt(track.frames());
+                    out.writeInt(track.data().length);
+                    out.write(track.data());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not write ghosts of course " + courseId, e);
+        }
+    }
+
+    private static GhostTrack faster(GhostTrack a, GhostTrack b) {
+        return b.timeMillis() < a.timeMillis() ? b : a;
+    }
+}
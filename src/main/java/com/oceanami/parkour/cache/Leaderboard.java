@@ -0,0 +1,239 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.model.LeaderboardEntry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Best times of one course, ordered by time in a size-augmented treap so ranks, top-N and
+ * neighbourhood queries cost O(log n) plus the number of returned entries.
+ */
+public class Leaderboard {
+
+    private static final Comparator<LeaderboardEntry> ORDER = Comparator
+            .comparingLong(LeaderboardEntry::timeMillis)
+            .thenComparing(LeaderboardEntry::playerId);
+
+    private static final class Node {
+        private final LeaderboardEntry entry;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(LeaderboardEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final Map<UUID, LeaderboardEntry> entriesByPlayer = new HashMap<>();
+    private Node root;
+
+    /**
+     * Records a time for a player, replacing their entry only when the new time is faster.
+     *
+     * @return true if the leaderboard changed
+     */
+    public synchronized boolean submit(UUID playerId, String playerName, long timeMillis) {
+        LeaderboardEntry existing = entriesByPlayer.get(playerId);
+        if (existing != null) {
+            if (existing.timeMillis() <= timeMillis) {
+                return false;
+            }
+            root = delete(root, existing);
+        }
+        LeaderboardEntry entry = new LeaderboardEntry(playerId, playerName, timeMillis);
+        entriesByPlayer.put(playerId, entry);
+        root = insert(root, new Node(entry));
+        return true;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the 1-based rank of a player, where equal times share a rank, or 0 if the player has no time.
+     */
+    public synchronized int getRank(UUID playerId) {
+        LeaderboardEntry entry = entriesByPlayer.get(playerId);
+        if (entry == null) {
+            return 0;
+        }
+        return countFasterThan(entry.timeMillis()) + 1;
+    }
+
+    public synchronized List<LeaderboardEntry> getTop(int limit) {
+        List<LeaderboardEntry> result = new ArrayList<>(Math.min(limit, size(root)));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while ((node != null || !stack.isEmpty()) && result.size() < limit) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            result.add(node.entry);
+            node = node.right;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entries within {@code radius} positions of a player, the player included.
+     */
+    public synchronized List<LeaderboardEntry> getAround(UUID playerId, int radius) {
+        LeaderboardEntry entry = entriesByPlayer.get(playerId);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        int position = indexOf(entry);
+        int from = Math.max(0, position - radius);
+        int to = Math.min(size(root) - 1, position + radius);
+        List<LeaderboardEntry> result = new ArrayList<>(to - from + 1);
+        for (int i = from; i <= to; i++) {
+            result.add(select(i));
+        }
+        return result;
+    }
+
+    private int countFasterThan(long timeMillis) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.entry.timeMillis() < timeMillis) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private int indexOf(LeaderboardEntry entry) {
+        int index = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = ORDER.compare(entry, node.entry);
+            if (cmp == 0) {
+                return index + size(node.left);
+            }
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    private LeaderboardEntry select(int index) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.entry;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.priority > node.priority) {
+            Node[] parts = split(node, inserted.entry);
+            inserted.left = parts[0];
+            inserted.right = parts[1];
+            update(inserted);
+            return inserted;
+        }
+        if (ORDER.compare(inserted.entry, node.entry) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, LeaderboardEntry entry) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = ORDER.compare(entry, node.entry);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, entry);
+        } else {
+            node.right = delete(node.right, entry);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Splits a subtree into nodes ordered before {@code entry} and the rest.
+     */
+    private static Node[] split(Node node, LeaderboardEntry entry) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (ORDER.compare(node.entry, entry) < 0) {
+            Node[] parts = split(node.right, entry);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        }
+        Node[] parts = split(node.left, entry);
+        node.left = parts[1];
+        update(node);
+        parts[1] = node;
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,61 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Per-course leaderboards built from {@code parkour_times} at startup and kept current as new best
+ * times are recorded, so leaderboard queries never touch the database.
+ */
+public class LeaderboardCache {
+
+    private final Map<Integer, Leaderboard> leaderboards = new ConcurrentHashMap<>();
+    private final DatabaseManager dbManager;
+    private final Logger logger;
+
+    public LeaderboardCache(DatabaseManager dbManager, Logger logger) {
+        this.dbManager = dbManager;
+        this.logger = logger;
+    }
+
+    public void loadLeaderboards() throws SQLException {
+        String sql = "SELECT course_id, player_uuid, player_name, time_millis FROM parkour_times";
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            int entries = 0;
+            while (rs.next()) {
+                submit(rs.getInt("course_id"), UUID.fromString(rs.getString("player_uuid")),
+                        rs.getString("player_name"), rs.getLong("time_millis"));
+                entries++;
+            }
+            logger.info("Loaded " + entries + " leaderboard entries for " + leaderboards.size() + " courses.");
+        }
+    }
+
+    public void submit(int courseId, UUID playerId, String playerName, long timeMillis) {
+        leaderboards.computeIfAbsent(courseId, id -> new Leaderboard()).submit(playerId, playerName, timeMillis);
+    }
+
+    public Optional<Leaderboard> getLeaderboard(int courseId) {
+        return Optional.ofNullable(leaderboards.get(courseId));
+    }
+
+    public int getCourseCount() {
+        return leaderboards.size();
+    }
+
+    public int getEntryCount() {
+        return leaderboards.values().stream().mapToInt(Leaderboard::size).sum();
+    }
+}
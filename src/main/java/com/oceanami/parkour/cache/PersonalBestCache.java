@@ -0,0 +1,126 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.model.PersonalBest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Personal best times and their splits for online players, loaded with a single query when a
+ * player joins and dropped when they quit, so neither a checkpoint nor a finish waits on the database.
+ */
+public class PersonalBestCache {
+
+    public enum Result {
+        NEW_BEST,
+        NOT_BEST,
+        /** The player's times have not finished loading yet. */
+        UNKNOWN
+    }
+
+    private static final class PlayerTimes {
+        private final Map<Integer, PersonalBest> bestTimes = new ConcurrentHashMap<>();
+        private volatile boolean loaded;
+    }
+
+    private final ParkourPlugin plugin;
+    private final Map<UUID, PlayerTimes> players = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PersonalBestCache(ParkourPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts loading every best time of a player asynchronously.
+     */
+    public void load(UUID playerId) {
+        PlayerTimes times = new PlayerTimes();
+        players.put(playerId, times);
+
+        plugin.getDatabaseManager().getExecutor().submit(() -> {
+            String sql = "SELECT course_id, time_millis, splits FROM parkour_times WHERE player_uuid = ?";
+            try (Connection conn = plugin.getDatabaseManager().getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, playerId.toString());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        PersonalBest best = new PersonalBest(rs.getLong("time_millis"), PersonalBest.decodeSplits(rs.getBytes("splits")));
+                        times.bestTimes.merge(rs.getInt("course_id"), best, PersonalBest::faster);
+                    }
+                }
+                // Times accepted before this join but not yet flushed are not in the table yet
+                plugin.getPlayerTimeWriteQueue().getPendingTimes(playerId)
+                        .forEach((courseId, best) -> times.bestTimes.merge(courseId, best, PersonalBest::faster));
+                times.loaded = true;
+            }
+            return null;
+        }).exceptionally(ex -> {
+            plugin.getLogger().log(Level.SEVERE, "Could not load personal bests for " + playerId, ex);
+            return null;
+        });
+    }
+
+    public void evict(UUID playerId) {
+        players.remove(playerId);
+    }
+
+    /**
+     * Compares a finish time against the cached personal best and records it if it is faster.
+     */
+    public Result recordTime(UUID playerId, int courseId, PersonalBest run) {
+        PlayerTimes times = players.get(playerId);
+        if (times == null || !times.loaded) {
+            misses.increment();
+            return Result.UNKNOWN;
+        }
+        hits.increment();
+
+        PersonalBest previous = times.bestTimes.get(courseId);
+        if (previous != null && previous.timeMillis() <= run.timeMillis()) {
+            return Result.NOT_BEST;
+        }
+        times.bestTimes.put(courseId, run);
+        return Result.NEW_BEST;
+    }
+
+    /**
+     * Records a best time that was determined without the cache, e.g. while the player was still loading.
+     */
+    public void updateBestTime(UUID playerId, int courseId, PersonalBest run) {
+        PlayerTimes times = players.get(playerId);
+        if (times != null) {
+            times.bestTimes.merge(courseId, run, PersonalBest::faster);
+        }
+    }
+
+    /**
+     * The split of the player's best run at a checkpoint, or {@link PersonalBest#NO_SPLIT} if it
+     * is unknown or not loaded yet. Never touches the database.
+     */
+    public int getBestSplit(UUID playerId, int courseId, int checkpointOrder) {
+        PlayerTimes times = players.get(playerId);
+        PersonalBest best = times != null ? times.bestTimes.get(courseId) : null;
+        return best != null ? best.split(checkpointOrder) : PersonalBest.NO_SPLIT;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getCachedPlayerCount() {
+        return players.size();
+    }
+}
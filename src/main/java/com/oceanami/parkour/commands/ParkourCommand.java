@@ -2,9 +2,23 @@ package com.oceanami.parkour.commands;
 
 import com.oceanami.parkour.ParkourPlugin;
 import com.oceanami.parkour.cache.CourseCache;
+import com.oceanami.parkour.cache.Leaderboard;
+import com.oceanami.parkour.cache.LeaderboardCache;
+import com.oceanami.parkour.cache.PersonalBestCache;
+import com.oceanami.parkour.database.ConnectionPool;
 import com.oceanami.parkour.database.CourseDAO;
+import com.oceanami.parkour.database.DatabaseExecutor;
+import com.oceanami.parkour.database.LatencyHistogram;
+import com.oceanami.parkour.manager.EffectDispatcher;
+import com.oceanami.parkour.manager.GhostManager;
 import com.oceanami.parkour.manager.LocationCache;
 import com.oceanami.parkour.manager.ParkourManager;
+import com.oceanami.parkour.manager.SessionRegistry;
+import com.oceanami.parkour.model.Course;
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.LeaderboardEntry;
+import com.oceanami.parkour.model.StoredLocation;
+import com.oceanami.parkour.model.TriggerType;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
@@ -19,18 +33,31 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.stream.Stream;
 
 public class ParkourCommand implements CommandExecutor, TabCompleter {
 
+    private static final int TOP_ENTRIES = 10;
+    private static final int AROUND_RADIUS = 2;
+    private static final List<String> REGION_TYPES = List.of("start", "checkpoint", "finish", "fail");
+    private static final Set<String> AVAILABLE_WHILE_LOADING = Set.of("reload", "stats");
+
     private final ParkourManager parkourManager;
     private final CourseDAO courseDAO;
     private final CourseCache courseCache;
     private final LocationCache locationCache;
     private final ParkourPlugin plugin;
+    // Corners picked with /parkour pos1 and pos2, per admin
+    private final Map<UUID, StoredLocation[]> selections = new HashMap<>();
 
     public ParkourCommand(ParkourPlugin plugin, ParkourManager parkourManager, CourseDAO courseDAO, CourseCache courseCache, LocationCache locationCache) {
         this.plugin = plugin;
@@ -47,10 +74,18 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        // Help, reload and stats stay available so a failed startup can be looked into and retried
+        if (!plugin.isReady() && args.length > 0 && !AVAILABLE_WHILE_LOADING.contains(args[0].toLowerCase())) {
+            player.sendMessage(ParkourPlugin.LOADING_MESSAGE);
+            return true;
+        }
+
         if (args.length == 0) {
             player.sendMessage(Component.text("--- Parkour Commands ---").color(NamedTextColor.GOLD));
             player.sendMessage(Component.text("/parkour restart").color(NamedTextColor.YELLOW).append(Component.text(" - Reset progress (không teleport).", NamedTextColor.GRAY)));
             player.sendMessage(Component.text("/parkour reset").color(NamedTextColor.YELLOW).append(Component.text(" - Reset về đầu (không teleport).", NamedTextColor.GRAY)));
+            player.sendMessage(Component.text("/parkour top <tên>").color(NamedTextColor.YELLOW).append(Component.text(" - Xem bảng xếp hạng màn chơi.", NamedTextColor.GRAY)));
+            player.sendMessage(Component.text("/parkour timer").color(NamedTextColor.YELLOW).append(Component.text(" - Bật/tắt đồng hồ trên thanh hành động.", NamedTextColor.GRAY)));
 
             if (player.hasPermission("parkour.admin")) {
                 player.sendMessage(Component.text("--- Lệnh Admin ---").color(NamedTextColor.RED));
@@ -60,8 +95,13 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
                 player.sendMessage(Component.text("/parkour addcheckpoint <tên>").color(NamedTextColor.YELLOW).append(Component.text(" - Thêm điểm checkpoint.", NamedTextColor.GRAY)));
                 player.sendMessage(Component.text("/parkour setrestartpoint <tên>").color(NamedTextColor.YELLOW).append(Component.text(" - Đặt điểm bắt đầu lại tùy chỉnh.", NamedTextColor.GRAY)));
                 player.sendMessage(Component.text("/parkour setresetpoint <tên>").color(NamedTextColor.YELLOW).append(Component.text(" - Đặt điểm quay về điểm bắt đầu tùy chỉnh.", NamedTextColor.GRAY)));
+                player.sendMessage(Component.text("/parkour pos1 | pos2").color(NamedTextColor.YELLOW).append(Component.text(" - Chọn góc vùng tại vị trí đang đứng.", NamedTextColor.GRAY)));
+                player.sendMessage(Component.text("/parkour addregion <tên> <start|checkpoint|finish|fail> [thứ tự]").color(NamedTextColor.YELLOW).append(Component.text(" - Tạo vùng kích hoạt từ vùng đã chọn.", NamedTextColor.GRAY)));
+                player.sendMessage(Component.text("/parkour delregion <tên> <id>").color(NamedTextColor.YELLOW).append(Component.text(" - Xóa vùng kích hoạt.", NamedTextColor.GRAY)));
+                player.sendMessage(Component.text("/parkour regions <tên>").color(NamedTextColor.YELLOW).append(Component.text(" - Xem danh sách vùng của màn chơi.", NamedTextColor.GRAY)));
                 player.sendMessage(Component.text("/parkour save <tên>").color(NamedTextColor.YELLOW).append(Component.text(" - Lưu màn chơi.", NamedTextColor.GRAY)));
                 player.sendMessage(Component.text("/parkour reload").color(NamedTextColor.YELLOW).append(Component.text(" - Tải lại cấu hình plugin.", NamedTextColor.GRAY)));
+                player.sendMessage(Component.text("/parkour stats").color(NamedTextColor.YELLOW).append(Component.text(" - Xem thống kê hiệu năng.", NamedTextColor.GRAY)));
             }
             return true;
         }
@@ -76,6 +116,12 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
             case "reset":
                 handleReset(player);
                 return true;
+            case "timer":
+                handleTimer(player);
+                return true;
+            case "top":
+                handleTop(player, args);
+                return true;
         }
 
         if (!player.hasPermission("parkour.admin")) {
@@ -91,8 +137,14 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
             case "addcheckpoint" -> handleSetLocation(player, args, "CHECKPOINT");
             case "setrestartpoint" -> handleSetLocation(player, args, "CUSTOM_RESTART");
             case "setresetpoint" -> handleSetLocation(player, args, "CUSTOM_RESET");
+            case "pos1" -> handleSelect(player, 0);
+            case "pos2" -> handleSelect(player, 1);
+            case "addregion" -> handleAddRegion(player, args);
+            case "delregion" -> handleRemoveRegion(player, args);
+            case "regions" -> handleListRegions(player, args);
             case "save" -> handleSave(player, args);
             case "reload" -> handleReload(player);
+            case "stats" -> handleStats(player);
             default -> player.sendMessage(Component.text("Unknown subcommand. Use /parkour for help.").color(NamedTextColor.RED));
         }
 
@@ -117,6 +169,53 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(Component.text("Please return to the start point manually.").color(NamedTextColor.YELLOW));
     }
 
+    private void handleTop(Player player, String[] args) {
+        if (args.length < 2) {
+            player.sendMessage(Component.text("Usage: /parkour top <course_name>").color(NamedTextColor.RED));
+            return;
+        }
+        var courseOpt = courseCache.getCourse(args[1]);
+        if (courseOpt.isEmpty()) {
+            player.sendMessage(Component.text("Course not found: " + args[1]).color(NamedTextColor.RED));
+            return;
+        }
+        Course course = courseOpt.get();
+        Optional<Leaderboard> leaderboardOpt = plugin.getLeaderboardCache().getLeaderboard(course.getId());
+        if (leaderboardOpt.isEmpty() || leaderboardOpt.get().size() == 0) {
+            player.sendMessage(Component.text("Nobody has finished " + course.getName() + " yet.").color(NamedTextColor.YELLOW));
+            return;
+        }
+
+        Leaderboard leaderboard = leaderboardOpt.get();
+        player.sendMessage(Component.text("--- Top times for " + course.getName() + " ---").color(NamedTextColor.GOLD));
+        List<LeaderboardEntry> top = leaderboard.getTop(TOP_ENTRIES);
+        for (LeaderboardEntry entry : top) {
+            sendLeaderboardLine(player, leaderboard.getRank(entry.playerId()), entry);
+        }
+
+        int rank = leaderboard.getRank(player.getUniqueId());
+        if (rank == 0) {
+            player.sendMessage(Component.text("You have not finished this course yet.").color(NamedTextColor.GRAY));
+        } else if (rank > top.size()) {
+            player.sendMessage(Component.text("...").color(NamedTextColor.GRAY));
+            for (LeaderboardEntry entry : leaderboard.getAround(player.getUniqueId(), AROUND_RADIUS)) {
+                sendLeaderboardLine(player, leaderboard.getRank(entry.playerId()), entry);
+            }
+        }
+    }
+
+    private void sendLeaderboardLine(Player player, int rank, LeaderboardEntry entry) {
+        NamedTextColor nameColor = entry.playerId().equals(player.getUniqueId()) ? NamedTextColor.AQUA : NamedTextColor.WHITE;
+        player.sendMessage(Component.text("#" + rank + " ", NamedTextColor.YELLOW)
+                .append(Component.text(entry.playerName(), nameColor))
+                .append(Component.text(" - " + ParkourManager.formatTime(entry.timeMillis()), NamedTextColor.GRAY)));
+    }
+
+    private void handleTimer(Player player) {
+        boolean shown = plugin.getActionBarTimer().toggle(player);
+        player.sendMessage(Component.text(shown ? "Action bar timer shown." : "Action bar timer hidden.").color(NamedTextColor.GREEN));
+    }
+
     private void handleCreate(Player player, String[] args) {
         if (args.length < 2) {
             player.sendMessage(Component.text("Usage: /parkour create <course_name>").color(NamedTextColor.RED));
@@ -226,6 +325,118 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
         }
     }
 
+    private void handleSelect(Player player, int corner) {
+        StoredLocation position = StoredLocation.of(player.getLocation());
+        StoredLocation[] selection = selections.computeIfAbsent(player.getUniqueId(), id -> new StoredLocation[2]);
+        selection[corner] = position;
+        player.sendMessage(Component.text(String.format("Position %d set to %d, %d, %d.",
+                corner + 1, position.blockX(), position.blockY(), position.blockZ())).color(NamedTextColor.GREEN));
+    }
+
+    private void handleAddRegion(Player player, String[] args) {
+        if (args.length < 3 || !REGION_TYPES.contains(args[2].toLowerCase())) {
+            player.sendMessage(Component.text("Usage: /parkour addregion <course_name> <start|checkpoint|finish|fail> [order]").color(NamedTextColor.RED));
+            return;
+        }
+        String courseName = args[1];
+        TriggerType type = TriggerType.valueOf(args[2].toUpperCase());
+        var courseOpt = courseCache.getCourse(courseName);
+        if (courseOpt.isEmpty()) {
+            player.sendMessage(Component.text("Course not found: " + courseName).color(NamedTextColor.RED));
+            return;
+        }
+        StoredLocation[] selection = selections.get(player.getUniqueId());
+        if (selection == null || selection[0] == null || selection[1] == null) {
+            player.sendMessage(Component.text("Select both corners with /parkour pos1 and /parkour pos2 first.").color(NamedTextColor.RED));
+            return;
+        }
+        if (!selection[0].worldName().equals(selection[1].worldName())) {
+            player.sendMessage(Component.text("Both corners must be in the same world.").color(NamedTextColor.RED));
+            return;
+        }
+
+        int order = 0;
+        if (type == TriggerType.CHECKPOINT) {
+            if (args.length < 4) {
+                player.sendMessage(Component.text("Checkpoint regions need an order: /parkour addregion " + courseName + " checkpoint <order>").color(NamedTextColor.RED));
+                return;
+            }
+            try {
+                order = Integer.parseInt(args[3]);
+            } catch (NumberFormatException e) {
+                player.sendMessage(Component.text("Invalid checkpoint order: " + args[3]).color(NamedTextColor.RED));
+                return;
+            }
+        }
+
+        CuboidRegion region = CuboidRegion.between(0, type, order, selection[0], selection[1]);
+        courseDAO.addRegion(courseOpt.get().getId(), courseName, region)
+                .thenAccept(stored -> Bukkit.getScheduler().runTask(plugin, () ->
+                        player.sendMessage(Component.text(String.format("Added %s region #%d (%d blocks) to %s",
+                                type.name().toLowerCase(), stored.id(), stored.volume(), courseName)).color(NamedTextColor.GREEN))))
+                .exceptionally(ex -> {
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        player.sendMessage(Component.text("An error occurred while adding the region.").color(NamedTextColor.RED));
+                        plugin.getLogger().log(Level.SEVERE, "SQL Exception on adding region", ex);
+                    });
+                    return null;
+                });
+    }
+
+    private void handleRemoveRegion(Player player, String[] args) {
+        if (args.length < 3) {
+            player.sendMessage(Component.text("Usage: /parkour delregion <course_name> <id>").color(NamedTextColor.RED));
+            return;
+        }
+        String courseName = args[1];
+        var courseOpt = courseCache.getCourse(courseName);
+        if (courseOpt.isEmpty()) {
+            player.sendMessage(Component.text("Course not found: " + courseName).color(NamedTextColor.RED));
+            return;
+        }
+        int regionId;
+        try {
+            regionId = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            player.sendMessage(Component.text("Invalid region id: " + args[2]).color(NamedTextColor.RED));
+            return;
+        }
+
+        courseDAO.removeRegion(courseOpt.get().getId(), courseName, regionId)
+                .thenAccept(removed -> Bukkit.getScheduler().runTask(plugin, () -> player.sendMessage(removed
+                        ? Component.text("Removed region #" + regionId + " from " + courseName).color(NamedTextColor.GREEN)
+                        : Component.text("Region #" + regionId + " does not belong to " + courseName).color(NamedTextColor.RED))))
+                .exceptionally(ex -> {
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        player.sendMessage(Component.text("An error occurred while removing the region.").color(NamedTextColor.RED));
+                        plugin.getLogger().log(Level.SEVERE, "SQL Exception on removing region", ex);
+                    });
+                    return null;
+                });
+    }
+
+    private void handleListRegions(Player player, String[] args) {
+        if (args.length < 2) {
+            player.sendMessage(Component.text("Usage: /parkour regions <course_name>").color(NamedTextColor.RED));
+            return;
+        }
+        String courseName = args[1];
+        Collection<CuboidRegion> regions = locationCache.getRegions(courseName);
+        if (regions.isEmpty()) {
+            player.sendMessage(Component.text("No regions defined for " + courseName).color(NamedTextColor.YELLOW));
+            return;
+        }
+        player.sendMessage(Component.text("--- Regions of " + courseName + " ---").color(NamedTextColor.GOLD));
+        for (CuboidRegion region : regions) {
+            String type = region.type() == TriggerType.CHECKPOINT
+                    ? "checkpoint " + region.checkpointOrder()
+                    : region.type().name().toLowerCase();
+            player.sendMessage(Component.text("#" + region.id() + " " + type, NamedTextColor.YELLOW)
+                    .append(Component.text(String.format(" %s (%d, %d, %d) -> (%d, %d, %d)", region.worldName(),
+                            region.minX(), region.minY(), region.minZ(), region.maxX(), region.maxY(), region.maxZ()), NamedTextColor.GRAY)));
+        }
+    }
+
     private void handleSave(Player player, String[] args) {
         if (args.length < 2) {
             player.sendMessage(Component.text("Usage: /parkour save <course_name>").color(NamedTextColor.RED));
@@ -271,12 +482,81 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(Component.text("Parkour plugin configuration reloaded.").color(NamedTextColor.GREEN));
     }
 
+    private void handleStats(Player player) {
+        player.sendMessage(Component.text("--- Parkour Stats ---").color(NamedTextColor.GOLD));
+        player.sendMessage(Component.text("Status: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("courses %s, schema %s%s",
+                        plugin.isReady() ? "ready" : "loading", plugin.isSchemaReady() ? "ready" : "pending",
+                        plugin.hasStartupFailed() ? ", startup failed (see console, retry with /parkour reload)" : ""), NamedTextColor.GRAY)));
+        for (ConnectionPool.Stats stats : plugin.getDatabaseManager().getPoolStats()) {
+            player.sendMessage(Component.text("Pool " + stats.name() + ": ", NamedTextColor.YELLOW)
+                    .append(Component.text(String.format("%d active, %d idle, %d/%d open, %d waiting",
+                            stats.active(), stats.idle(), stats.total(), stats.maximum(), stats.waiting()), NamedTextColor.GRAY)));
+            player.sendMessage(Component.text("  wait: ", NamedTextColor.YELLOW)
+                    .append(Component.text(String.format("avg %.2fms, max %.2fms over %d borrows, %d timeouts",
+                            stats.averageWaitMillis(), stats.maxWaitMillis(), stats.borrows(), stats.timeouts()), NamedTextColor.GRAY)));
+        }
+        DatabaseExecutor executor = plugin.getDatabaseManager().getExecutor();
+        DatabaseExecutor.Stats executorStats = executor.getStats();
+        player.sendMessage(Component.text("DB executor: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("%d/%d busy, queue %d/%d, %d done, %d rejected, %d coalesced, %d timed out%s",
+                        executorStats.active(), executorStats.workers(), executorStats.queued(), executorStats.queueCapacity(),
+                        executorStats.completed(), executorStats.rejected(), executorStats.coalesced(), executorStats.timedOut(),
+                        executorStats.virtualThreads() ? " (virtual threads)" : ""), NamedTextColor.GRAY)));
+        sendLatencyLine(player, "  queue wait: ", executor.getQueueLatency());
+        sendLatencyLine(player, "  execution: ", executor.getExecutionLatency());
+        player.sendMessage(Component.text("Pending time writes: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.valueOf(plugin.getPlayerTimeWriteQueue().getPendingCount()), NamedTextColor.GRAY)));
+        LeaderboardCache leaderboards = plugin.getLeaderboardCache();
+        player.sendMessage(Component.text("Leaderboards: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("%d courses, %d entries",
+                        leaderboards.getCourseCount(), leaderboards.getEntryCount()), NamedTextColor.GRAY)));
+        player.sendMessage(Component.text("Indexed plates: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.valueOf(locationCache.getPlateCount()), NamedTextColor.GRAY)));
+        player.sendMessage(Component.text("Indexed regions: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.valueOf(locationCache.getRegionCount()), NamedTextColor.GRAY)));
+        player.sendMessage(Component.text("Pending timers: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.valueOf(plugin.getTimingWheel().size()), NamedTextColor.GRAY)));
+        EffectDispatcher effects = plugin.getEffectDispatcher();
+        player.sendMessage(Component.text("Effects: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("%d submitted, %d merged, %d dropped, %d packets",
+                        effects.getSubmitted(), effects.getMerged(), effects.getDropped(), effects.getPackets()), NamedTextColor.GRAY)));
+        GhostManager ghosts = plugin.getGhostManager();
+        player.sendMessage(Component.text("Ghosts: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("%d recording (%d of %d KB), %d replaying, %d loaded for %d courses (%d KB)",
+                        ghosts.getRecorderCount(), ghosts.getRecordedBytes() / 1024, ghosts.getReservedBytes() / 1024,
+                        ghosts.getPlaybackCount(), ghosts.getStore().getLoadedTrackCount(),
+                        ghosts.getStore().getLoadedCourseCount(), ghosts.getStore().getLoadedBytes() / 1024), NamedTextColor.GRAY)));
+        SessionRegistry.Snapshot sessions = plugin.getParkourManager().getSessionSnapshot();
+        player.sendMessage(Component.text("Active sessions: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("%d on %d courses",
+                        sessions.sessions().size(), sessions.byCourse().size()), NamedTextColor.GRAY)));
+        LatencyHistogram moveTimings = plugin.getPlayerListener().getMoveTimings();
+        player.sendMessage(Component.text("Move handler: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("mean %.2fµs, p50 %.2fµs, p99 %.2fµs, max %.2fµs (%d moves)",
+                        moveTimings.getMeanMillis() * 1000, moveTimings.getPercentileMillis(50) * 1000,
+                        moveTimings.getPercentileMillis(99) * 1000, moveTimings.getMaxMillis() * 1000,
+                        moveTimings.getCount()), NamedTextColor.GRAY)));
+        PersonalBestCache personalBests = plugin.getPersonalBestCache();
+        player.sendMessage(Component.text("Personal best cache: ", NamedTextColor.YELLOW)
+                .append(Component.text(String.format("%d players, %d hits, %d misses",
+                        personalBests.getCachedPlayerCount(), personalBests.getHits(), personalBests.getMisses()), NamedTextColor.GRAY)));
+    }
+
+    private void sendLatencyLine(Player player, String label, LatencyHistogram histogram) {
+        player.sendMessage(Component.text(label, NamedTextColor.YELLOW)
+                .append(Component.text(String.format("p50 %.2fms, p95 %.2fms, p99 %.2fms, max %.2fms (%d samples)",
+                        histogram.getPercentileMillis(50), histogram.getPercentileMillis(95), histogram.getPercentileMillis(99),
+                        histogram.getMaxMillis(), histogram.getCount()), NamedTextColor.GRAY)));
+    }
+
     @Override
     public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String alias, @NotNull String[] args) {
         if (args.length == 1) {
-            List<String> playerCommands = Arrays.asList("restart", "reset");
+            List<String> playerCommands = Arrays.asList("restart", "reset", "top", "timer");
             if (sender.hasPermission("parkour.admin")) {
-                List<String> adminCommands = Arrays.asList("create", "setstart", "setfinish", "addcheckpoint", "save", "setrestartpoint", "setresetpoint", "reload");
+                List<String> adminCommands = Arrays.asList("create", "setstart", "setfinish", "addcheckpoint", "save", "setrestartpoint", "setresetpoint",
+                        "pos1", "pos2", "addregion", "delregion", "regions", "reload", "stats");
                 return Stream.concat(playerCommands.stream(), adminCommands.stream())
                         .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))
                         .toList();
@@ -286,6 +566,11 @@ public class ParkourCommand implements CommandExecutor, TabCompleter {
                         .toList();
             }
         }
+        if (args.length == 3 && args[0].equalsIgnoreCase("addregion") && sender.hasPermission("parkour.admin")) {
+            return REGION_TYPES.stream()
+                    .filter(s -> s.startsWith(args[2].toLowerCase()))
+                    .toList();
+        }
         // You can add tab completion for course names here in the future
         return Collections.emptyList();
     }
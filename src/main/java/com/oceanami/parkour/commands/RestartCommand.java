@@ -1,5 +1,6 @@
 package com.oceanami.parkour.commands;
 
+import com.oceanami.parkour.ParkourPlugin;
 import com.oceanami.parkour.manager.ParkourManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -11,9 +12,11 @@ import org.jetbrains.annotations.NotNull;
 
 public class RestartCommand implements CommandExecutor {
 
+    private final ParkourPlugin plugin;
     private final ParkourManager parkourManager;
 
-    public RestartCommand(ParkourManager parkourManager) {
+    public RestartCommand(ParkourPlugin plugin, ParkourManager parkourManager) {
+        this.plugin = plugin;
         this.parkourManager = parkourManager;
     }
 
@@ -24,6 +27,11 @@ public class RestartCommand implements CommandExecutor {
             return true;
         }
 
+        if (!plugin.isReady()) {
+            player.sendMessage(ParkourPlugin.LOADING_MESSAGE);
+            return true;
+        }
+
         if (!parkourManager.isPlaying(player)) {
             player.sendMessage(Component.text("You are not currently in a parkour course.").color(NamedTextColor.RED));
             return true;
@@ -0,0 +1,487 @@
+package com.oceanami.parkour.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool. Borrowed connections are proxies whose {@code close()} hands the
+ * physical connection back to the pool, so callers keep using try-with-resources as before.
+ * Every physical connection keeps its own LRU cache of prepared statements across borrows.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** Idle connections returned more recently than this are handed out without a validation round trip. */
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    public record Settings(int maximumSize, int minimumIdle, long connectionTimeoutMillis, long idleTimeoutMillis,
+                           long maxLifetimeMillis, int validationTimeoutSeconds, int statementCacheSize,
+                           int queryTimeoutSeconds) {
+    }
+
+    public record Stats(String name, int active, int idle, int total, int maximum, int waiting,
+                        long borrows, long timeouts, double averageWaitMillis, double maxWaitMillis) {
+    }
+
+    private final String name;
+    private final ConnectionFactory factory;
+    private final List<String> initSql;
+    private final Settings settings;
+    private final Logger logger;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private int totalConnections;
+    private int waitingThreads;
+    private boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String name, ConnectionFactory factory, List<String> initSql, Settings settings, Logger logger) {
+        this.name = name;
+        this.factory = factory;
+        this.initSql = List.copyOf(initSql);
+        this.settings = settings;
+        this.logger = logger;
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured connection timeout for one to become free.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.connectionTimeoutMillis());
+
+        while (true) {
+            PooledConnection candidate;
+            boolean mustOpen = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool '" + name + "' is closed.");
+                    }
+                    candidate = idleConnections.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalConnections < settings.maximumSize()) {
+                        totalConnections++;
+                        mustOpen = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        timeoutCount.increment();
+                        throw new SQLTimeoutException("Timed out after " + settings.connectionTimeoutMillis()
+                                + "ms waiting for a connection from pool '" + name + "'.");
+                    }
+                    waitingThreads++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    } finally {
+                        waitingThreads--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (mustOpen) {
+                try {
+                    candidate = openConnection();
+                } catch (SQLException | RuntimeException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                destroy(candidate);
+                continue;
+            }
+
+            long waited = System.nanoTime() - start;
+            borrowCount.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            return candidate.lease();
+        }
+    }
+
+    /**
+     * Closes idle connections that exceeded the idle timeout or their maximum lifetime,
+     * keeping at least {@code minimumIdle} connections warm.
+     */
+    public void evictIdleConnections() {
+        long now = System.nanoTime();
+        long idleTimeout = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMillis());
+        List<PooledConnection> evicted = new ArrayList<>();
+
+        lock.lock();
+        try {
+            // Oldest returned connections sit at the tail of the deque
+            Iterator<PooledConnection> it = idleConnections.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection connection = it.next();
+                boolean expired = isPastLifetime(connection, now);
+                boolean idleTooLong = now - connection.lastReturned > idleTimeout
+                        && idleConnections.size() > settings.minimumIdle();
+                if (expired || idleTooLong) {
+                    it.remove();
+                    evicted.add(connection);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        evicted.forEach(this::destroy);
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            long borrows = borrowCount.sum();
+            double averageWait = borrows == 0 ? 0.0 : totalWaitNanos.sum() / (double) borrows / 1_000_000.0;
+            int idle = idleConnections.size();
+            return new Stats(name, totalConnections - idle, idle, totalConnections, settings.maximumSize(), waitingThreads,
+                    borrows, timeoutCount.sum(), averageWait, maxWaitNanos.get() / 1_000_000.0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<PooledConnection> drained;
+        lock.lock();
+        try {
+            closed = true;
+            drained = new ArrayList<>(idleConnections);
+            idleConnections.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Borrowed connections are destroyed when their borrowers hand them back
+        drained.forEach(this::destroy);
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection raw = factory.create();
+        try (Statement stmt = raw.createStatement()) {
+            for (String sql : initSql) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            closeQuietly(raw);
+            throw e;
+        }
+        return new PooledConnection(raw);
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        long now = System.nanoTime();
+        if (isPastLifetime(connection, now)) {
+            return false;
+        }
+        if (now - connection.lastReturned < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return connection.raw.isValid(settings.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isPastLifetime(PooledConnection connection, long now) {
+        return settings.maxLifetimeMillis() > 0
+                && now - connection.createdAt > TimeUnit.MILLISECONDS.toNanos(settings.maxLifetimeMillis());
+    }
+
+    private void release(PooledConnection connection) {
+        boolean healthy = connection.resetForReuse();
+        lock.lock();
+        try {
+            if (healthy && !closed) {
+                connection.lastReturned = System.nanoTime();
+                idleConnections.addFirst(connection);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(connection);
+    }
+
+    private void destroy(PooledConnection connection) {
+        connection.closePhysical();
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Error while closing pooled JDBC resource", e);
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A physical connection plus its statement cache. Only the current borrower touches it,
+     * so the cache itself needs no synchronisation.
+     */
+    private final class PooledConnection {
+        private final Connection raw;
+        private final long createdAt = System.nanoTime();
+        private volatile long lastReturned = System.nanoTime();
+        private final Map<String, CachedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= settings.statementCacheSize()) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+
+        private PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+
+        private PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            if (settings.statementCacheSize() <= 0) {
+                return prepareUncached(sql, autoGeneratedKeys);
+            }
+            String key = autoGeneratedKeys + ":" + sql;
+            CachedStatement cached = statementCache.get(key);
+            if (cached == null) {
+                cached = new CachedStatement(prepareUncached(sql, autoGeneratedKeys));
+                statementCache.put(key, cached);
+            } else if (cached.inUse) {
+                // Same SQL prepared twice within one borrow; hand out an uncached statement
+                return prepareUncached(sql, autoGeneratedKeys);
+            }
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        private PreparedStatement prepareUncached(String sql, int autoGeneratedKeys) throws SQLException {
+            PreparedStatement statement = raw.prepareStatement(sql, autoGeneratedKeys);
+            if (settings.queryTimeoutSeconds() > 0) {
+                statement.setQueryTimeout(settings.queryTimeoutSeconds());
+            }
+            return statement;
+        }
+
+        private boolean resetForReuse() {
+            try {
+                for (CachedStatement statement : statementCache.values()) {
+                    statement.finish();
+                }
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+                raw.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Discarding pooled connection from '" + name + "' that failed to reset", e);
+                return false;
+            }
+        }
+
+        private void closePhysical() {
+            for (CachedStatement statement : statementCache.values()) {
+                closeQuietly(statement.statement);
+            }
+            statementCache.clear();
+            closeQuietly(raw);
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection connection;
+        private boolean closed;
+
+        private Lease(PooledConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(connection);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + name + "]";
+                }
+                default -> {
+                }
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            if (method.getName().equals("prepareStatement")) {
+                Class<?>[] params = method.getParameterTypes();
+                if (params.length == 1) {
+                    return connection.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (params.length == 2 && params[1] == int.class) {
+                    return connection.prepare((String) args[0], (Integer) args[1]);
+                }
+            }
+            return invokeTarget(connection.raw, method, args);
+        }
+    }
+
+    private final class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+        private boolean evicted;
+        private ResultSet openResultSet;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    finish();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            Object result;
+            if (method.getName().startsWith("execute")) {
+                DatabaseExecutor.beginStatement(statement);
+                try {
+                    result = invokeTarget(statement, method, args);
+                } finally {
+                    DatabaseExecutor.endStatement();
+                }
+            } else {
+                result = invokeTarget(statement, method, args);
+            }
+            if (result instanceof ResultSet resultSet) {
+                openResultSet = resultSet;
+            }
+            return result;
+        }
+
+        private void finish() throws SQLException {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            if (openResultSet != null) {
+                closeQuietly(openResultSet);
+                openResultSet = null;
+            }
+            if (evicted) {
+                statement.close();
+                return;
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly(statement);
+            }
+        }
+    }
+}
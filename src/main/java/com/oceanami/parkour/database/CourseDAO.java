@@ -1,8 +1,10 @@
 package com.oceanami.parkour.database;
 
 import com.oceanami.parkour.cache.CourseCache;
+import com.oceanami.parkour.cache.CourseSnapshotStore;
 import com.oceanami.parkour.manager.LocationCache;
 import com.oceanami.parkour.model.Course;
+import com.oceanami.parkour.model.CuboidRegion;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -12,7 +14,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 
 public class CourseDAO {
@@ -21,186 +26,259 @@ public class CourseDAO {
     private final DatabaseManager databaseManager;
     private final CourseCache courseCache;
     private final LocationCache locationCache;
+    private final CourseSnapshotStore snapshotStore;
+    private final DatabaseExecutor executor;
+    private final String saveLocationSql;
 
-    public CourseDAO(JavaPlugin plugin, DatabaseManager databaseManager, CourseCache courseCache, LocationCache locationCache) {
+    public CourseDAO(JavaPlugin plugin, DatabaseManager databaseManager, CourseCache courseCache, LocationCache locationCache,
+                     CourseSnapshotStore snapshotStore) {
         this.plugin = plugin;
         this.databaseManager = databaseManager;
         this.courseCache = courseCache;
         this.locationCache = locationCache;
+        this.snapshotStore = snapshotStore;
+        this.executor = databaseManager.getExecutor();
+        this.saveLocationSql = databaseManager.getDialect().upsertSql("locations",
+                List.of("course_id", "type", "checkpoint_order", "world", "x", "y", "z", "yaw", "pitch"),
+                List.of("course_id", "type", "checkpoint_order"));
     }
 
     public CompletableFuture<Void> createCourse(String courseName) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            String sql = "INSERT INTO courses (name, ready) VALUES (?, ?)";
-            try (Connection conn = databaseManager.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setString(1, courseName);
-                pstmt.setBoolean(2, false);
-                int affectedRows = pstmt.executeUpdate();
-
-                if (affectedRows > 0) {
-                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                        if (generatedKeys.next()) {
-                            int id = generatedKeys.getInt(1);
-                            Course newCourse = new Course(id, courseName, false);
-                            Bukkit.getScheduler().runTask(plugin, () -> {
-                                courseCache.addCourse(newCourse);
-                                future.complete(null);
-                            });
-                            return;
+        return executor.submit(() -> {
+                    String sql = "INSERT INTO courses (name, ready) VALUES (?, ?)";
+                    try (Connection conn = databaseManager.getConnection();
+                         PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setString(1, courseName);
+                        pstmt.setBoolean(2, false);
+                        if (pstmt.executeUpdate() > 0) {
+                            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                                if (generatedKeys.next()) {
+                                    return new Course(generatedKeys.getInt(1), courseName, false);
+                                }
+                            }
                         }
+                        return null;
                     }
-                }
-                Bukkit.getScheduler().runTask(plugin, () -> future.complete(null));
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not create course", e);
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+                })
+                .thenAcceptAsync(newCourse -> {
+                    if (newCourse != null) {
+                        courseCache.addCourse(newCourse);
+                    }
+                }, mainThread())
+                .thenRun(snapshotStore::scheduleWrite)
+                .whenComplete(logFailure("Could not create course"));
     }
 
     public CompletableFuture<Void> setStartLocation(int courseId, String courseName, Location loc) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                saveLocation(courseId, "START", 0, loc);
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    locationCache.addStartLocation(courseName, loc);
-                    future.complete(null);
-                });
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not set start location", e);
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return executor.submit(() -> {
+                    saveLocation(courseId, "START", 0, loc);
+                    return null;
+                })
+                .thenRunAsync(() -> locationCache.addStartLocation(courseId, courseName, loc), mainThread())
+                .thenRun(snapshotStore::scheduleWrite)
+                .whenComplete(logFailure("Could not set start location"));
     }
 
     public CompletableFuture<Void> setFinishLocation(int courseId, String courseName, Location loc) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                saveLocation(courseId, "FINISH", 0, loc);
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    locationCache.addFinishLocation(courseName, loc);
-                    future.complete(null);
-                });
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not set finish location", e);
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return executor.submit(() -> {
+                    saveLocation(courseId, "FINISH", 0, loc);
+                    return null;
+                })
+                .thenRunAsync(() -> locationCache.addFinishLocation(courseId, courseName, loc), mainThread())
+                .thenRun(snapshotStore::scheduleWrite)
+                .whenComplete(logFailure("Could not set finish location"));
     }
 
     public CompletableFuture<Void> addCheckpoint(int courseId, String courseName, int order, Location loc) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                saveLocation(courseId, "CHECKPOINT", order, loc);
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    locationCache.addCheckpoint(courseName, order, loc);
-                    future.complete(null);
-                });
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not add checkpoint", e);
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return executor.submit(() -> {
+                    saveLocation(courseId, "CHECKPOINT", order, loc);
+                    return null;
+                })
+                .thenRunAsync(() -> locationCache.addCheckpoint(courseId, courseName, order, loc), mainThread())
+                .thenRun(snapshotStore::scheduleWrite)
+                .whenComplete(logFailure("Could not add checkpoint"));
     }
 
     public CompletableFuture<Void> setCustomRestartPoint(int courseId, String courseName, Location loc) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                saveLocation(courseId, "CUSTOM_RESTART", 0, loc);
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    locationCache.addCustomRestartPoint(courseName, loc);
-                    future.complete(null);
-                });
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not set custom restart point", e);
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return executor.submit(() -> {
+                    saveLocation(courseId, "CUSTOM_RESTART", 0, loc);
+                    return null;
+                })
+                .thenRunAsync(() -> locationCache.addCustomRestartPoint(courseId, courseName, loc), mainThread())
+                .thenRun(snapshotStore::scheduleWrite)
+                .whenComplete(logFailure("Could not set custom restart point"));
     }
 
     public CompletableFuture<Void> setCustomResetPoint(int courseId, String courseName, Location loc) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                saveLocation(courseId, "CUSTOM_RESET", 0, loc);
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    locationCache.addCustomResetPoint(courseName, loc);
-                    future.complete(null);
-                });
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not set custom reset point", e);
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return executor.submit(() -> {
+                    saveLocation(courseId, "CUSTOM_RESET", 0, loc);
+                    return null;
+                })
+                .thenRunAsync(() -> locationCache.addCustomResetPoint(courseId, courseName, loc), mainThread())
+                .thenRun(snapshotStore::scheduleWrite)
+                .whenComplete(logFailure("Could not set custom reset point"));
+    }
+
+    /**
+     * Stores a new region and completes with it, carrying its generated id.
+     */
+    public CompletableFuture<CuboidRegion> addRegion(int courseId, String courseName, CuboidRegion region) {
+        return executor.submit(() -> {
+                    String sql = "INSERT INTO regions (course_id, type, checkpoint_order, world, min_x, min_y, min_z, max_x, max_y, max_z) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                    try (Connection conn = databaseManager.getConnection();
+                         PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                        conn.setAutoCommit(false);
+                        try {
+                            pstmt.setInt(1, courseId);
+                            pstmt.setString(2, region.type().name());
+                            pstmt.setInt(3, region.checkpointOrder());
+                            pstmt.setString(4, region.worldName());
+                            pstmt.setInt(5, region.minX());
+                            pstmt.setInt(6, region.minY());
+                            pstmt.setInt(7, region.minZ());
+                            pstmt.setInt(8, region.maxX());
+                            pstmt.setInt(9, region.maxY());
+                            pstmt.setInt(10, region.maxZ());
+                            pstmt.executeUpdate();
+                            CuboidRegion stored;
+                            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                                if (!generatedKeys.next()) {
+                                    throw new SQLException("No id generated for region");
+                                }
+                                stored = region.withId(generatedKeys.getInt(1));
+                            }
+                            bumpRevision(conn, courseId);
+                            conn.commit();
+                            return stored;
+                        } catch (SQLException e) {
+                            conn.rollback();
+                            throw e;
+                        } finally {
+                            conn.setAutoCommit(true);
+                        }
+                    }
+                })
+                .thenApplyAsync(stored -> {
+                    locationCache.addRegion(courseId, courseName, stored);
+                    snapshotStore.scheduleWrite();
+                    return stored;
+                }, mainThread())
+                .whenComplete(logFailure("Could not add region"));
+    }
+
+    /**
+     * Deletes a region of a course and completes with whether it existed.
+     */
+    public CompletableFuture<Boolean> removeRegion(int courseId, String courseName, int regionId) {
+        return executor.submit(() -> {
+                    try (Connection conn = databaseManager.getConnection();
+                         PreparedStatement pstmt = conn.prepareStatement("DELETE FROM regions WHERE id = ? AND course_id = ?")) {
+                        conn.setAutoCommit(false);
+                        try {
+                            pstmt.setInt(1, regionId);
+                            pstmt.setInt(2, courseId);
+                            boolean removed = pstmt.executeUpdate() > 0;
+                            if (removed) {
+                                bumpRevision(conn, courseId);
+                            }
+                            conn.commit();
+                            return removed;
+                        } catch (SQLException e) {
+                            conn.rollback();
+                            throw e;
+                        } finally {
+                            conn.setAutoCommit(true);
+                        }
+                    }
+                })
+                .thenApplyAsync(removed -> {
+                    if (removed) {
+                        locationCache.removeRegion(courseId, courseName, regionId);
+                        snapshotStore.scheduleWrite();
+                    }
+                    return removed;
+                }, mainThread())
+                .whenComplete(logFailure("Could not remove region"));
     }
 
     public CompletableFuture<Integer> getCheckpointCount(int courseId) {
-        CompletableFuture<Integer> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            String sql = "SELECT COUNT(*) AS count FROM locations WHERE course_id = ? AND type = 'CHECKPOINT'";
-            try (Connection conn = databaseManager.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setInt(1, courseId);
-                ResultSet rs = pstmt.executeQuery();
-                int count = 0;
-                if (rs.next()) {
-                    count = rs.getInt("count");
-                }
-                future.complete(count);
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not get checkpoint count", e);
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return executor.submit(() -> {
+                    String sql = "SELECT COUNT(*) AS count FROM locations WHERE course_id = ? AND type = 'CHECKPOINT'";
+                    try (Connection conn = databaseManager.getReadConnection();
+                         PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setInt(1, courseId);
+                        ResultSet rs = pstmt.executeQuery();
+                        int count = 0;
+                        if (rs.next()) {
+                            count = rs.getInt("count");
+                        }
+                        return count;
+                    }
+                })
+                .whenComplete(logFailure("Could not get checkpoint count"));
     }
 
     public CompletableFuture<Void> setCourseReady(String courseName) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            String sql = "UPDATE courses SET ready = ? WHERE name = ?";
-            try (Connection conn = databaseManager.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setBoolean(1, true);
-                pstmt.setString(2, courseName);
-                pstmt.executeUpdate();
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    courseCache.getCourse(courseName).ifPresent(course -> course.setReady(true));
-                    future.complete(null);
-                });
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not set course ready", e);
-                future.completeExceptionally(e);
+        return executor.submit(() -> {
+                    String sql = "UPDATE courses SET ready = ?, revision = revision + 1 WHERE name = ?";
+                    try (Connection conn = databaseManager.getConnection();
+                         PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setBoolean(1, true);
+                        pstmt.setString(2, courseName);
+                        pstmt.executeUpdate();
+                    }
+                    return null;
+                })
+                .thenRunAsync(() -> courseCache.markReady(courseName), mainThread())
+                .thenRun(snapshotStore::scheduleWrite)
+                .whenComplete(logFailure("Could not set course ready"));
+    }
+
+    private Executor mainThread() {
+        return Bukkit.getScheduler().getMainThreadExecutor(plugin);
+    }
+
+    private <T> BiConsumer<T, Throwable> logFailure(String message) {
+        return (result, ex) -> {
+            if (ex != null) {
+                plugin.getLogger().log(Level.SEVERE, message, ex);
             }
-        });
-        return future;
+        };
     }
 
     private void saveLocation(int courseId, String type, int order, Location loc) throws SQLException {
-        String sql = "INSERT OR REPLACE INTO locations (course_id, type, checkpoint_order, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         try (Connection conn = databaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(saveLocationSql)) {
+            conn.setAutoCommit(false);
+            try {
+                pstmt.setInt(1, courseId);
+                pstmt.setString(2, type);
+                pstmt.setInt(3, order);
+                pstmt.setString(4, loc.getWorld().getName());
+                pstmt.setDouble(5, loc.getX());
+                pstmt.setDouble(6, loc.getY());
+                pstmt.setDouble(7, loc.getZ());
+                pstmt.setFloat(8, loc.getYaw());
+                pstmt.setFloat(9, loc.getPitch());
+                pstmt.executeUpdate();
+                bumpRevision(conn, courseId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Marks a course as changed so the next cache reload picks up only this course.
+     */
+    private void bumpRevision(Connection conn, int courseId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE courses SET revision = revision + 1 WHERE id = ?")) {
             pstmt.setInt(1, courseId);
-            pstmt.setString(2, type);
-            pstmt.setInt(3, order);
-            pstmt.setString(4, loc.getWorld().getName());
-            pstmt.setDouble(5, loc.getX());
-            pstmt.setDouble(6, loc.getY());
-            pstmt.setDouble(7, loc.getZ());
-            pstmt.setFloat(8, loc.getYaw());
-            pstmt.setFloat(9, loc.getPitch());
             pstmt.executeUpdate();
         }
     }
@@ -0,0 +1,233 @@
+package com.oceanami.parkour.database;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plugin-owned executor for all database work. It runs a fixed number of workers over a bounded
+ * queue and rejects work once the queue is full instead of spawning more threads. Tasks that
+ * overrun their timeout have their running statement cancelled. On Java 21+ the workers are
+ * virtual threads.
+ */
+public class DatabaseExecutor {
+
+    @FunctionalInterface
+    public interface SqlTask<T> {
+        T run() throws SQLException;
+    }
+
+    public record Stats(int workers, int active, int queued, int queueCapacity, long completed,
+                        long rejected, long coalesced, long timedOut, boolean virtualThreads) {
+    }
+
+    private static final ThreadLocal<RunningTask> CURRENT_TASK = new ThreadLocal<>();
+
+    private final Logger logger;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService watchdog;
+    private final int queueCapacity;
+    private final long taskTimeoutMillis;
+    private final boolean virtualThreads;
+    private final Map<String, CompletableFuture<?>> pendingByKey = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram executionLatency = new LatencyHistogram();
+
+    public DatabaseExecutor(int workers, int queueCapacity, long taskTimeoutMillis, boolean preferVirtualThreads, Logger logger) {
+        this.logger = logger;
+        this.queueCapacity = queueCapacity;
+        this.taskTimeoutMillis = taskTimeoutMillis;
+
+        ThreadFactory virtualFactory = preferVirtualThreads ? createVirtualThreadFactory() : null;
+        this.virtualThreads = virtualFactory != null;
+        ThreadFactory factory = virtualFactory != null ? virtualFactory : platformThreadFactory("Parkour-DB-");
+
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(platformThreadFactory("Parkour-DB-Watchdog-"));
+    }
+
+    public <T> CompletableFuture<T> submit(SqlTask<T> task) {
+        return submit(task, taskTimeoutMillis);
+    }
+
+    /**
+     * Submits a task with its own timeout, e.g. for one-off bulk work such as startup loads.
+     * A timeout of 0 disables the watchdog for this task.
+     */
+    public <T> CompletableFuture<T> submit(SqlTask<T> task, long timeoutMillis) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        dispatch(null, task, future, timeoutMillis);
+        return future;
+    }
+
+    /**
+     * Submits a task unless one with the same key is still waiting in the queue, in which case the
+     * waiting task's future is returned instead. Tasks that already started are never joined.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submitCoalesced(String key, SqlTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<?> waiting = pendingByKey.putIfAbsent(key, future);
+        if (waiting != null) {
+            coalesced.increment();
+            return (CompletableFuture<T>) waiting;
+        }
+        dispatch(key, task, future, taskTimeoutMillis);
+        return future;
+    }
+
+    private <T> void dispatch(String key, SqlTask<T> task, CompletableFuture<T> future, long timeoutMillis) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> run(key, task, future, timeoutMillis, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            if (key != null) {
+                pendingByKey.remove(key, future);
+            }
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+    }
+
+    private <T> void run(String key, SqlTask<T> task, CompletableFuture<T> future, long timeoutMillis, long enqueuedAt) {
+        if (key != null) {
+            pendingByKey.remove(key, future);
+        }
+        long startedAt = System.nanoTime();
+        queueLatency.record(startedAt - enqueuedAt);
+        if (future.isDone()) {
+            return;
+        }
+
+        RunningTask running = new RunningTask();
+        CURRENT_TASK.set(running);
+        ScheduledFuture<?> timeout = null;
+        if (timeoutMillis > 0) {
+            timeout = watchdog.schedule(() -> {
+                if (future.completeExceptionally(new TimeoutException("Database task exceeded " + timeoutMillis + "ms"))) {
+                    timedOut.increment();
+                    running.cancel();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        try {
+            future.complete(task.run());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        } finally {
+            CURRENT_TASK.remove();
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            executionLatency.record(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Called by pooled statements around each execution so the watchdog knows what to cancel.
+     */
+    static void beginStatement(Statement statement) {
+        RunningTask running = CURRENT_TASK.get();
+        if (running != null) {
+            running.statement = statement;
+        }
+    }
+
+    static void endStatement() {
+        RunningTask running = CURRENT_TASK.get();
+        if (running != null) {
+            running.statement = null;
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(), queueCapacity,
+                executor.getCompletedTaskCount(), rejected.sum(), coalesced.sum(), timedOut.sum(), virtualThreads);
+    }
+
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    public LatencyHistogram getExecutionLatency() {
+        return executionLatency;
+    }
+
+    /**
+     * Stops accepting work and waits briefly for queued tasks to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Database executor did not finish " + executor.getQueue().size() + " queued tasks before shutdown.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        watchdog.shutdownNow();
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Builds a virtual thread factory reflectively so the plugin still runs on Java 17.
+     */
+    private ThreadFactory createVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "Parkour-DB-", 1L);
+            Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            logger.log(Level.FINE, "Virtual threads are not available, using platform threads", e);
+            return null;
+        }
+    }
+
+    private static final class RunningTask {
+        private volatile Statement statement;
+
+        private void cancel() {
+            Statement current = statement;
+            if (current != null) {
+                try {
+                    current.cancel();
+                } catch (SQLException ignored) {
+                    // The statement finished or the driver cannot cancel it; the timeout is already reported
+                }
+            }
+        }
+    }
+}
@@ -1,129 +1,175 @@
 package com.oceanami.parkour.database;
 
 import com.oceanami.parkour.ParkourPlugin;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
+/**
+ * Owns the connection pools. MySQL uses a single pool shared by reads and writes. SQLite runs in
+ * WAL mode with exactly one writer connection, so writers never fight over the database lock,
+ * and a separate pool of query-only reader connections. All asynchronous work goes through the
+ * bounded {@link DatabaseExecutor}.
+ */
 public class DatabaseManager {
 
+    private static final long EVICTION_INTERVAL_TICKS = 30 * 20L;
+
     private final ParkourPlugin plugin;
-    private Connection connection;
+    private final SqlDialect dialect;
+    private final ConnectionPool writePool;
+    private final ConnectionPool readPool;
+    private final DatabaseExecutor executor;
+    private BukkitTask evictionTask;
 
     public DatabaseManager(ParkourPlugin plugin) {
         this.plugin = plugin;
-    }
-
-    public Connection getConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            return connection;
-        }
 
         FileConfiguration config = plugin.getConfig();
-        String storageType = config.getString("storage-type", "sqlite");
+        this.dialect = SqlDialect.fromStorageType(config.getString("storage-type", "sqlite"));
 
-        if (storageType.equalsIgnoreCase("mysql")) {
+        int maximumSize = Math.max(1, config.getInt("pool.maximum-size", 8));
+        ConnectionPool.Settings settings = new ConnectionPool.Settings(
+                maximumSize,
+                Math.min(maximumSize, Math.max(0, config.getInt("pool.minimum-idle", 2))),
+                config.getLong("pool.connection-timeout", 5000L),
+                config.getLong("pool.idle-timeout", 600000L),
+                config.getLong("pool.max-lifetime", 1800000L),
+                config.getInt("pool.validation-timeout", 3),
+                config.getInt("pool.statement-cache-size", 64),
+                config.getInt("pool.query-timeout", 10)
+        );
+
+        if (dialect == SqlDialect.MYSQL) {
             String host = config.getString("mysql.host");
             int port = config.getInt("mysql.port");
             String database = config.getString("mysql.database");
             String username = config.getString("mysql.username");
             String password = config.getString("mysql.password");
-            
-            synchronized (this) {
-                 if (connection != null && !connection.isClosed()) {
-                    return connection;
-                }
-                // Added autoReconnect=true for more stability
-                connection = DriverManager.getConnection("jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false&autoReconnect=true", username, password);
-                plugin.getLogger().info("Successfully connected to MySQL database.");
-            }
+            String url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false&useServerPrepStmts=true&rewriteBatchedStatements=true";
+
+            this.writePool = new ConnectionPool("mysql", () -> DriverManager.getConnection(url, username, password),
+                    dialect.getConnectionInitSql(), settings, plugin.getLogger());
+            this.readPool = writePool;
         } else { // Default to SQLite
-            File databaseFile = new File(plugin.getDataFolder(), "parkour_data.db");
-            if (!databaseFile.exists()) {
-                try {
-                    File dataFolder = plugin.getDataFolder();
-                    if (!dataFolder.exists()) {
-                        if (!dataFolder.mkdirs()) {
-                            plugin.getLogger().warning("Failed to create plugin data folder.");
-                        }
-                    }
-                    if (!databaseFile.createNewFile()) {
-                        plugin.getLogger().severe("Could not create SQLite database file!");
+            String url = "jdbc:sqlite:" + prepareSqliteFile().getAbsolutePath();
+            int readers = Math.max(1, config.getInt("pool.sqlite-readers", 4));
+
+            ConnectionPool.Settings writerSettings = new ConnectionPool.Settings(1, 1,
+                    settings.connectionTimeoutMillis(), settings.idleTimeoutMillis(), 0L,
+                    settings.validationTimeoutSeconds(), settings.statementCacheSize(), settings.queryTimeoutSeconds());
+            ConnectionPool.Settings readerSettings = new ConnectionPool.Settings(readers, Math.min(readers, settings.minimumIdle()),
+                    settings.connectionTimeoutMillis(), settings.idleTimeoutMillis(), 0L,
+                    settings.validationTimeoutSeconds(), settings.statementCacheSize(), settings.queryTimeoutSeconds());
+
+            List<String> readerInitSql = new ArrayList<>(dialect.getConnectionInitSql());
+            readerInitSql.add("PRAGMA query_only=1");
+
+            this.writePool = new ConnectionPool("sqlite-writer", () -> DriverManager.getConnection(url),
+                    dialect.getConnectionInitSql(), writerSettings, plugin.getLogger());
+            this.readPool = new ConnectionPool("sqlite-reader", () -> DriverManager.getConnection(url),
+                    readerInitSql, readerSettings, plugin.getLogger());
+        }
+
+        this.executor = new DatabaseExecutor(
+                Math.max(1, config.getInt("database-executor.workers", 4)),
+                Math.max(1, config.getInt("database-executor.queue-capacity", 256)),
+                config.getLong("database-executor.task-timeout", 15000L),
+                config.getBoolean("database-executor.virtual-threads", true),
+                plugin.getLogger()
+        );
+        plugin.getLogger().info("Using " + dialect.name().toLowerCase() + " storage with a pooled connection layer.");
+    }
+
+    private File prepareSqliteFile() {
+        File databaseFile = new File(plugin.getDataFolder(), "parkour_data.db");
+        if (!databaseFile.exists()) {
+            try {
+                File dataFolder = plugin.getDataFolder();
+                if (!dataFolder.exists()) {
+                    if (!dataFolder.mkdirs()) {
+                        plugin.getLogger().warning("Failed to create plugin data folder.");
                     }
-                } catch (IOException e) {
-                    plugin.getLogger().log(Level.SEVERE, "Could not create SQLite database file!", e);
                 }
-            }
-            
-            synchronized (this) {
-                if (connection != null && !connection.isClosed()) {
-                    return connection;
+                if (!databaseFile.createNewFile()) {
+                    plugin.getLogger().severe("Could not create SQLite database file!");
                 }
-                connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
-                plugin.getLogger().info("Successfully connected to SQLite database.");
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not create SQLite database file!", e);
             }
         }
-        return connection;
+        return databaseFile;
     }
 
-    public void initializeDatabase() {
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
-            
-            // Table for parkour courses
-            String coursesTable = "CREATE TABLE IF NOT EXISTS courses (" +
-                                  "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                                  "name VARCHAR(255) NOT NULL UNIQUE," +
-                                  "ready BOOLEAN NOT NULL DEFAULT 0" +
-                                  ");";
-            stmt.execute(coursesTable);
-
-            // Table for locations (start, finish, checkpoints)
-            String locationsTable = "CREATE TABLE IF NOT EXISTS locations (" +
-                                      "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                                      "course_id INTEGER NOT NULL," +
-                                      "type VARCHAR(16) NOT NULL, " + // START, FINISH, CHECKPOINT, CUSTOM_RESTART, CUSTOM_RESET
-                                      "checkpoint_order INTEGER DEFAULT 0," +
-                                      "world VARCHAR(255) NOT NULL," +
-                                      "x DOUBLE NOT NULL, y DOUBLE NOT NULL, z DOUBLE NOT NULL," +
-                                      "yaw REAL NOT NULL, pitch REAL NOT NULL," +
-                                      "FOREIGN KEY(course_id) REFERENCES courses(id) ON DELETE CASCADE" +
-                                      ");";
-            stmt.execute(locationsTable);
-
-            // Table for player best times
-            String playerTimesTable = "CREATE TABLE IF NOT EXISTS parkour_times (" +
-                                      "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                                      "player_uuid VARCHAR(36) NOT NULL," +
-                                      "player_name VARCHAR(16) NOT NULL," +
-                                      "course_id INTEGER NOT NULL," +
-                                      "time_millis BIGINT NOT NULL," +
-                                      "UNIQUE(player_uuid, course_id)," +
-                                      "FOREIGN KEY(course_id) REFERENCES courses(id) ON DELETE CASCADE" +
-                                      ");";
-            stmt.execute(playerTimesTable);
-
-            plugin.getLogger().info("Database tables initialized successfully.");
-
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not initialize database tables!", e);
+    /**
+     * Borrows a connection that may write. Closing it returns it to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        return writePool.getConnection();
+    }
+
+    /**
+     * Borrows a connection for queries only. On SQLite these never block the writer.
+     */
+    public Connection getReadConnection() throws SQLException {
+        return readPool.getConnection();
+    }
+
+    /**
+     * The executor every asynchronous database task should run on.
+     */
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    public List<ConnectionPool.Stats> getPoolStats() {
+        if (readPool == writePool) {
+            return List.of(writePool.getStats());
         }
+        return List.of(writePool.getStats(), readPool.getStats());
     }
 
-    public void closeConnection() {
-        if (connection != null) {
-            try {
-                if (!connection.isClosed()) {
-                    connection.close();
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to close database connection.", e);
+    /**
+     * Migrates the schema to the latest version and starts evicting idle connections.
+     *
+     * @throws SQLException if a migration failed; the schema is then left at the last version that
+     *                      applied completely
+     */
+    public void initializeDatabase() throws SQLException {
+        new SchemaMigrator(this, plugin.getLogger()).migrate();
+
+        if (evictionTask != null) {
+            return; // Startup ran again after a failed step
+        }
+        evictionTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            writePool.evictIdleConnections();
+            if (readPool != writePool) {
+                readPool.evictIdleConnections();
             }
+        }, EVICTION_INTERVAL_TICKS, EVICTION_INTERVAL_TICKS);
+    }
+
+    public void closeConnection() {
+        if (evictionTask != null) {
+            evictionTask.cancel();
+        }
+        executor.shutdown();
+        writePool.close();
+        if (readPool != writePool) {
+            readPool.close();
         }
     }
 }
@@ -0,0 +1,81 @@
+package com.oceanami.parkour.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed, roughly logarithmic buckets. Percentiles are reported
+ * as the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram {
+
+    private static final long[] DATABASE_BOUNDS_NANOS = {
+            250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000,
+            100_000_000, 250_000_000, 500_000_000, 1_000_000_000, 5_000_000_000L
+    };
+
+    private final long[] boundsNanos;
+    private final AtomicLongArray buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Creates a histogram with buckets suited to database calls, from 0.25ms to 5s.
+     */
+    public LatencyHistogram() {
+        this(DATABASE_BOUNDS_NANOS);
+    }
+
+    /**
+     * @param boundsNanos ascending upper bounds of the buckets
+     */
+    public LatencyHistogram(long... boundsNanos) {
+        this.boundsNanos = boundsNanos.clone();
+        this.buckets = new AtomicLongArray(boundsNanos.length + 1);
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < boundsNanos.length && nanos > boundsNanos[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long samples = count.sum();
+        return samples == 0 ? 0.0 : totalNanos.sum() / (double) samples / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     */
+    public double getPercentileMillis(double percentile) {
+        long samples = count.sum();
+        if (samples == 0) {
+            return 0.0;
+        }
+        long threshold = (long) Math.ceil(samples * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < boundsNanos.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return boundsNanos[i] / 1_000_000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+}
@@ -2,7 +2,10 @@ package com.oceanami.parkour.database;
 
 import com.oceanami.parkour.ParkourPlugin;
 import com.oceanami.parkour.cache.CourseCache;
+import com.oceanami.parkour.cache.LeaderboardCache;
+import com.oceanami.parkour.cache.PersonalBestCache;
 import com.oceanami.parkour.model.Course;
+import com.oceanami.parkour.model.PersonalBest;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
@@ -13,66 +16,100 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.logging.Level;
 
 /**
- * Handles persistence of player best times. All database operations are executed asynchronously,
- * and any interaction with the Bukkit API is dispatched back onto the main server thread.
+ * Handles persistence of player best times. All database operations are executed on the
+ * {@link DatabaseExecutor}, and any interaction with the Bukkit API is dispatched back onto the main server thread. New best
+ * times are handed to the {@link PlayerTimeWriteQueue} rather than written immediately, and personal
+ * bests are compared against the {@link PersonalBestCache} whenever the player's times are loaded.
  */
 public class PlayerTimeDAO {
 
     private final ParkourPlugin plugin;
     private final DatabaseManager dbManager;
+    private final PlayerTimeWriteQueue writeQueue;
+    private final PersonalBestCache personalBestCache;
+    private final LeaderboardCache leaderboardCache;
     private final CourseCache courseCache;
 
     public PlayerTimeDAO(ParkourPlugin plugin, CourseCache courseCache) {
         this.plugin = plugin;
         this.dbManager = plugin.getDatabaseManager();
+        this.writeQueue = plugin.getPlayerTimeWriteQueue();
+        this.personalBestCache = plugin.getPersonalBestCache();
+        this.leaderboardCache = plugin.getLeaderboardCache();
         this.courseCache = courseCache;
     }
 
-    public void savePlayerTime(Player player, String courseName, long timeMillis) {
+    /**
+     * @param splits split times of the run by checkpoint order, kept with the time if it is a new best
+     */
+    public void savePlayerTime(Player player, String courseName, long timeMillis, int[] splits) {
         Optional<Course> courseOpt = courseCache.getCourse(courseName);
         if (courseOpt.isEmpty()) {
             player.sendMessage(Component.text("Error: The course '" + courseName + "' no longer exists.").color(NamedTextColor.RED));
             return;
         }
         int courseId = courseOpt.get().getId();
+        UUID playerId = player.getUniqueId();
+        PersonalBest run = new PersonalBest(timeMillis, splits);
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                Optional<Long> existingTime = getPlayerTime(player.getUniqueId().toString(), courseId);
-
-                if (existingTime.isEmpty() || timeMillis < existingTime.get()) {
-                    String sql = "REPLACE INTO parkour_times (player_uuid, player_name, course_id, time_millis) VALUES (?, ?, ?, ?)";
-                    try (Connection conn = dbManager.getConnection();
-                         PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                        pstmt.setString(1, player.getUniqueId().toString());
-                        pstmt.setString(2, player.getName());
-                        pstmt.setInt(3, courseId);
-                        pstmt.setLong(4, timeMillis);
-                        pstmt.executeUpdate();
-                    }
-                    Bukkit.getScheduler().runTask(plugin, () ->
-                        player.sendMessage(Component.text("Congratulations! You set a new personal best!").color(NamedTextColor.GREEN))
-                    );
+        switch (personalBestCache.recordTime(playerId, courseId, run)) {
+            case NEW_BEST -> {
+                player.sendMessage(Component.text("Congratulations! You set a new personal best!").color(NamedTextColor.GREEN));
+                writeQueue.enqueue(playerId, player.getName(), courseId, run);
+                leaderboardCache.submit(courseId, playerId, player.getName(), timeMillis);
+            }
+            case NOT_BEST -> player.sendMessage(Component.text("You did not beat your previous best time. Keep trying!").color(NamedTextColor.YELLOW));
+            case UNKNOWN -> {
+                if (plugin.isSchemaReady()) {
+                    compareWithDatabase(player, courseId, run);
                 } else {
-                    Bukkit.getScheduler().runTask(plugin, () ->
-                        player.sendMessage(Component.text("You did not beat your previous best time. Keep trying!").color(NamedTextColor.YELLOW))
-                    );
+                    // Courses restored from the snapshot are playable before the schema is migrated
+                    plugin.whenSchemaReady().thenRun(() -> compareWithDatabase(player, courseId, run));
                 }
-            } catch (SQLException e) {
-                Bukkit.getScheduler().runTask(plugin, () ->
-                    player.sendMessage(Component.text("Could not save your time due to a database error.").color(NamedTextColor.RED))
-                );
-                plugin.getLogger().log(Level.SEVERE, "Could not save player time", e);
             }
-        });
+        }
+    }
+
+    /**
+     * Fallback for finishes that happen before the player's personal bests have been loaded.
+     */
+    private void compareWithDatabase(Player player, int courseId, PersonalBest run) {
+        long timeMillis = run.timeMillis();
+        UUID playerId = player.getUniqueId();
+        String playerName = player.getName();
+        dbManager.getExecutor().submit(() -> {
+            Optional<Long> existingTime = getPlayerTime(playerId.toString(), courseId);
+            Optional<Long> pendingTime = writeQueue.getPendingTime(playerId, courseId);
+            if (pendingTime.isPresent() && (existingTime.isEmpty() || pendingTime.get() < existingTime.get())) {
+                existingTime = pendingTime;
+            }
+
+            boolean newBest = existingTime.isEmpty() || timeMillis < existingTime.get();
+            if (newBest) {
+                writeQueue.enqueue(playerId, playerName, courseId, run);
+                personalBestCache.updateBestTime(playerId, courseId, run);
+                leaderboardCache.submit(courseId, playerId, playerName, timeMillis);
+            }
+            return newBest;
+        }).whenCompleteAsync((newBest, ex) -> {
+            if (ex != null) {
+                player.sendMessage(Component.text("Could not save your time due to a database error.").color(NamedTextColor.RED));
+                plugin.getLogger().log(Level.SEVERE, "Could not save player time", ex);
+            } else if (newBest) {
+                player.sendMessage(Component.text("Congratulations! You set a new personal best!").color(NamedTextColor.GREEN));
+            } else {
+                player.sendMessage(Component.text("You did not beat your previous best time. Keep trying!").color(NamedTextColor.YELLOW));
+            }
+        }, Bukkit.getScheduler().getMainThreadExecutor(plugin));
     }
 
     private Optional<Long> getPlayerTime(String uuid, int courseId) throws SQLException {
         String sql = "SELECT time_millis FROM parkour_times WHERE player_uuid = ? AND course_id = ?";
-        try (Connection conn = dbManager.getConnection();
+        try (Connection conn = dbManager.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, uuid);
             pstmt.setInt(2, courseId);
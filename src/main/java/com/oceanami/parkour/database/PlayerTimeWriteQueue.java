@@ -0,0 +1,162 @@
+package com.oceanami.parkour.database;
+
+import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.model.PersonalBest;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Write-behind buffer for player best times and their splits. Only the fastest pending time per
+ * player and course is kept, and pending times are written as a single JDBC batch inside one transaction, either on a
+ * fixed interval or as soon as the batch size threshold is reached.
+ */
+public class PlayerTimeWriteQueue {
+
+    private record Key(UUID playerId, int courseId) {
+    }
+
+    private record PendingTime(String playerName, PersonalBest best) {
+    }
+
+    private final ParkourPlugin plugin;
+    private final DatabaseManager dbManager;
+    private final Map<Key, PendingTime> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final long flushIntervalTicks;
+    private final int batchSize;
+    private final String upsertSql;
+    private BukkitTask flushTask;
+
+    public PlayerTimeWriteQueue(ParkourPlugin plugin, DatabaseManager dbManager) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.flushIntervalTicks = Math.max(1L, plugin.getConfig().getLong("write-behind.flush-interval", 100L));
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("write-behind.batch-size", 200));
+        // Only ever lowers a stored time, so writes from other servers sharing the database are never undone
+        this.upsertSql = dbManager.getDialect().upsertIfLowerSql("parkour_times",
+                List.of("player_uuid", "player_name", "course_id", "time_millis", "splits"),
+                List.of("player_uuid", "course_id"), "time_millis");
+    }
+
+    public void start() {
+        if (flushTask != null) {
+            return;
+        }
+        flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::scheduleFlush, flushIntervalTicks, flushIntervalTicks);
+    }
+
+    /**
+     * Stops the periodic flush and synchronously writes everything still pending.
+     * Must be called before the connection pool is closed.
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            plugin.getLogger().severe("Could not persist " + pending.size() + " pending parkour times on shutdown.");
+        }
+    }
+
+    public void enqueue(UUID playerId, String playerName, int courseId, PersonalBest best) {
+        pending.merge(new Key(playerId, courseId), new PendingTime(playerName, best), PlayerTimeWriteQueue::faster);
+        if (pending.size() >= batchSize) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Queues a flush on the database executor, joining one that is already waiting.
+     */
+    private void scheduleFlush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        dbManager.getExecutor().submitCoalesced("flush-player-times", () -> {
+            flush();
+            return null;
+        });
+    }
+
+    /**
+     * Returns a time that has been accepted but not yet written, if any.
+     */
+    public Optional<Long> getPendingTime(UUID playerId, int courseId) {
+        return Optional.ofNullable(pending.get(new Key(playerId, courseId))).map(time -> time.best().timeMillis());
+    }
+
+    /**
+     * Returns all pending times of one player keyed by course id.
+     */
+    public Map<Integer, PersonalBest> getPendingTimes(UUID playerId) {
+        Map<Integer, PersonalBest> times = new HashMap<>();
+        pending.forEach((key, time) -> {
+            if (key.playerId().equals(playerId)) {
+                times.put(key.courseId(), time.best());
+            }
+        });
+        return times;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            Map<Key, PendingTime> batch = new HashMap<>();
+            for (Key key : pending.keySet()) {
+                PendingTime time = pending.remove(key);
+                if (time != null) {
+                    batch.put(key, time);
+                }
+            }
+
+            try (Connection conn = dbManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(upsertSql)) {
+                conn.setAutoCommit(false);
+                try {
+                    for (Map.Entry<Key, PendingTime> entry : batch.entrySet()) {
+                        pstmt.setString(1, entry.getKey().playerId().toString());
+                        pstmt.setString(2, entry.getValue().playerName());
+                        pstmt.setInt(3, entry.getKey().courseId());
+                        pstmt.setLong(4, entry.getValue().best().timeMillis());
+                        pstmt.setBytes(5, PersonalBest.encodeSplits(entry.getValue().best().splits()));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                // Put the batch back so the next flush retries it, without overwriting faster times queued meanwhile
+                batch.forEach((key, time) -> pending.merge(key, time, PlayerTimeWriteQueue::faster));
+                plugin.getLogger().log(Level.SEVERE, "Could not flush " + batch.size() + " player times, will retry", e);
+            }
+        }
+    }
+
+    private static PendingTime faster(PendingTime a, PendingTime b) {
+        return b.best().timeMillis() < a.best().timeMillis() ? b : a;
+    }
+}
@@ -0,0 +1,196 @@
+package com.oceanami.parkour.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings the schema up to date by applying ordered migrations newer than the version recorded in
+ * {@code schema_version}. Every step is idempotent, so re-running one that was interrupted (MySQL
+ * commits DDL implicitly) is harmless.
+ */
+public class SchemaMigrator {
+
+    @FunctionalInterface
+    interface MigrationStep {
+        void apply(Connection conn, SqlDialect dialect) throws SQLException;
+    }
+
+    record Migration(int version, String description, MigrationStep step) {
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create courses, locations and parkour_times tables", SchemaMigrator::createBaseTables),
+            new Migration(2, "Index locations by course and type", (conn, dialect) ->
+                    createIndex(conn, dialect, "locations", "idx_locations_course_type", "course_id, type", false)),
+            new Migration(3, "Index parkour_times by course and time", (conn, dialect) ->
+                    createIndex(conn, dialect, "parkour_times", "idx_times_course_time", "course_id, time_millis", false)),
+            new Migration(4, "Make locations unique per course, type and checkpoint order", SchemaMigrator::uniqueLocations),
+            new Migration(5, "Track a revision per course for incremental reloads", (conn, dialect) ->
+                    addColumn(conn, "courses", "revision", "BIGINT NOT NULL DEFAULT 0")),
+            new Migration(6, "Create regions table for cuboid triggers", SchemaMigrator::createRegionsTable),
+            new Migration(7, "Store checkpoint splits with each best time", (conn, dialect) ->
+                    addColumn(conn, "parkour_times", "splits", "BLOB"))
+    );
+
+    private final DatabaseManager dbManager;
+    private final Logger logger;
+
+    public SchemaMigrator(DatabaseManager dbManager, Logger logger) {
+        this.dbManager = dbManager;
+        this.logger = logger;
+    }
+
+    public void migrate() throws SQLException {
+        SqlDialect dialect = dbManager.getDialect();
+        try (Connection conn = dbManager.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                             "version INTEGER NOT NULL PRIMARY KEY," +
+                             "description VARCHAR(255) NOT NULL," +
+                             "applied_at BIGINT NOT NULL" +
+                             ")" + dialect.getTableOptions());
+            }
+
+            int current = getCurrentVersion(conn);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+                conn.setAutoCommit(false);
+                try {
+                    migration.step().apply(conn, dialect);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                        pstmt.setInt(1, migration.version());
+                        pstmt.setString(2, migration.description());
+                        pstmt.setLong(3, System.currentTimeMillis());
+                        pstmt.executeUpdate();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Schema migration " + migration.version() + " failed: " + migration.description(), e);
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                current = migration.version();
+                logger.info("Applied schema migration " + migration.version() + ": " + migration.description());
+            }
+            logger.info("Database schema is at version " + current + ".");
+        }
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void createBaseTables(Connection conn, SqlDialect dialect) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Table for parkour courses
+            stmt.execute("CREATE TABLE IF NOT EXISTS courses (" +
+                         "id " + dialect.getAutoIncrementPrimaryKey() + "," +
+                         "name VARCHAR(255) NOT NULL UNIQUE," +
+                         "ready BOOLEAN NOT NULL DEFAULT 0" +
+                         ")" + dialect.getTableOptions());
+
+            // Table for locations (start, finish, checkpoints)
+            stmt.execute("CREATE TABLE IF NOT EXISTS locations (" +
+                         "id " + dialect.getAutoIncrementPrimaryKey() + "," +
+                         "course_id INTEGER NOT NULL," +
+                         "type VARCHAR(16) NOT NULL, " + // START, FINISH, CHECKPOINT, CUSTOM_RESTART, CUSTOM_RESET
+                         "checkpoint_order INTEGER DEFAULT 0," +
+                         "world VARCHAR(255) NOT NULL," +
+                         "x DOUBLE NOT NULL, y DOUBLE NOT NULL, z DOUBLE NOT NULL," +
+                         "yaw REAL NOT NULL, pitch REAL NOT NULL," +
+                         "FOREIGN KEY(course_id) REFERENCES courses(id) ON DELETE CASCADE" +
+                         ")" + dialect.getTableOptions());
+
+            // Table for player best times
+            stmt.execute("CREATE TABLE IF NOT EXISTS parkour_times (" +
+                         "id " + dialect.getAutoIncrementPrimaryKey() + "," +
+                         "player_uuid VARCHAR(36) NOT NULL," +
+                         "player_name VARCHAR(16) NOT NULL," +
+                         "course_id INTEGER NOT NULL," +
+                         "time_millis BIGINT NOT NULL," +
+                         "UNIQUE(player_uuid, course_id)," +
+                         "FOREIGN KEY(course_id) REFERENCES courses(id) ON DELETE CASCADE" +
+                         ")" + dialect.getTableOptions());
+        }
+    }
+
+    private static void createRegionsTable(Connection conn, SqlDialect dialect) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS regions (" +
+                         "id " + dialect.getAutoIncrementPrimaryKey() + "," +
+                         "course_id INTEGER NOT NULL," +
+                         "type VARCHAR(16) NOT NULL, " + // START, FINISH, CHECKPOINT, FAIL
+                         "checkpoint_order INTEGER NOT NULL DEFAULT 0," +
+                         "world VARCHAR(255) NOT NULL," +
+                         "min_x INTEGER NOT NULL, min_y INTEGER NOT NULL, min_z INTEGER NOT NULL," +
+                         "max_x INTEGER NOT NULL, max_y INTEGER NOT NULL, max_z INTEGER NOT NULL," +
+                         "FOREIGN KEY(course_id) REFERENCES courses(id) ON DELETE CASCADE" +
+                         ")" + dialect.getTableOptions());
+        }
+        createIndex(conn, dialect, "regions", "idx_regions_course", "course_id", false);
+    }
+
+    /**
+     * Older versions appended a new row for every location change, so keep only the newest row of
+     * each slot before the unique key that upserts rely on is added.
+     */
+    private static void uniqueLocations(Connection conn, SqlDialect dialect) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE locations SET checkpoint_order = 0 WHERE checkpoint_order IS NULL");
+            if (dialect == SqlDialect.MYSQL) {
+                stmt.execute("DELETE older FROM locations older JOIN locations newer " +
+                             "ON older.course_id = newer.course_id AND older.type = newer.type " +
+                             "AND older.checkpoint_order = newer.checkpoint_order AND older.id < newer.id");
+            } else {
+                stmt.execute("DELETE FROM locations WHERE id NOT IN " +
+                             "(SELECT MAX(id) FROM locations GROUP BY course_id, type, checkpoint_order)");
+            }
+        }
+        createIndex(conn, dialect, "locations", "uq_locations_slot", "course_id, type, checkpoint_order", true);
+    }
+
+    static void addColumn(Connection conn, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    static void createIndex(Connection conn, SqlDialect dialect, String table, String index, String columns, boolean unique) throws SQLException {
+        if (indexExists(conn, table, index)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(dialect.createIndexSql(table, index, columns, unique));
+        }
+    }
+
+    private static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
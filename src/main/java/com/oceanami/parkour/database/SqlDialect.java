@@ -0,0 +1,116 @@
+package com.oceanami.parkour.database;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The database engines supported by the plugin, selected through {@code storage-type} in config.yml.
+ */
+public enum SqlDialect {
+
+    SQLITE(List.of(
+            "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=NORMAL",
+            "PRAGMA busy_timeout=5000"
+    ), "INTEGER PRIMARY KEY AUTOINCREMENT", ""),
+    MYSQL(List.of(), "INT AUTO_INCREMENT PRIMARY KEY", " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+    private static final String MYSQL_ROW_ALIAS = "new";
+
+    private final List<String> connectionInitSql;
+    private final String autoIncrementPrimaryKey;
+    private final String tableOptions;
+
+    SqlDialect(List<String> connectionInitSql, String autoIncrementPrimaryKey, String tableOptions) {
+        this.connectionInitSql = connectionInitSql;
+        this.autoIncrementPrimaryKey = autoIncrementPrimaryKey;
+        this.tableOptions = tableOptions;
+    }
+
+    /**
+     * Statements executed once on every freshly opened physical connection.
+     */
+    public List<String> getConnectionInitSql() {
+        return connectionInitSql;
+    }
+
+    /**
+     * Column definition for a surrogate integer key.
+     */
+    public String getAutoIncrementPrimaryKey() {
+        return autoIncrementPrimaryKey;
+    }
+
+    /**
+     * Suffix appended to {@code CREATE TABLE} statements.
+     */
+    public String getTableOptions() {
+        return tableOptions;
+    }
+
+    /**
+     * Builds a statement that adds an index. MySQL builds it online so large tables stay writable.
+     */
+    public String createIndexSql(String table, String index, String columns, boolean unique) {
+        if (this == MYSQL) {
+            return "ALTER TABLE " + table + " ADD " + (unique ? "UNIQUE " : "") + "INDEX " + index
+                    + " (" + columns + "), ALGORITHM=INPLACE, LOCK=NONE";
+        }
+        return "CREATE " + (unique ? "UNIQUE " : "") + "INDEX IF NOT EXISTS " + index + " ON " + table + " (" + columns + ")";
+    }
+
+    /**
+     * Builds a single-statement insert that updates every non-key column in place when a row with
+     * the same unique key already exists.
+     */
+    public String upsertSql(String table, List<String> columns, List<String> keyColumns) {
+        List<String> updates = columns.stream()
+                .filter(column -> !keyColumns.contains(column))
+                .map(column -> column + " = " + insertedValue(column))
+                .toList();
+        return insertSql(table, columns) + conflictClause(keyColumns) + String.join(", ", updates);
+    }
+
+    /**
+     * Like {@link #upsertSql} but the existing row is only updated when the inserted
+     * {@code compareColumn} value is lower, e.g. to keep a best time.
+     */
+    public String upsertIfLowerSql(String table, List<String> columns, List<String> keyColumns, String compareColumn) {
+        List<String> updateColumns = columns.stream().filter(column -> !keyColumns.contains(column)).toList();
+        if (this == MYSQL) {
+            // MySQL evaluates assignments left to right, so the compared column must be assigned last
+            String isLower = insertedValue(compareColumn) + " < " + compareColumn;
+            List<String> updates = updateColumns.stream()
+                    .filter(column -> !column.equals(compareColumn))
+                    .map(column -> column + " = IF(" + isLower + ", " + insertedValue(column) + ", " + column + ")")
+                    .collect(Collectors.toList());
+            updates.add(compareColumn + " = LEAST(" + compareColumn + ", " + insertedValue(compareColumn) + ")");
+            return insertSql(table, columns) + conflictClause(keyColumns) + String.join(", ", updates);
+        }
+        List<String> updates = updateColumns.stream().map(column -> column + " = " + insertedValue(column)).toList();
+        return insertSql(table, columns) + conflictClause(keyColumns) + String.join(", ", updates)
+                + " WHERE " + insertedValue(compareColumn) + " < " + table + "." + compareColumn;
+    }
+
+    private static String insertSql(String table, List<String> columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    private String conflictClause(List<String> keyColumns) {
+        if (this == MYSQL) {
+            // Row alias (MySQL 8.0.19+) in place of VALUES(col), which is deprecated since 8.0.20
+            return " AS " + MYSQL_ROW_ALIAS + " ON DUPLICATE KEY UPDATE ";
+        }
+        return " ON CONFLICT(" + String.join(", ", keyColumns) + ") DO UPDATE SET ";
+    }
+
+    private String insertedValue(String column) {
+        return (this == MYSQL ? MYSQL_ROW_ALIAS : "excluded") + "." + column;
+    }
+
+    public static SqlDialect fromStorageType(String storageType) {
+        return "mysql".equalsIgnoreCase(storageType) ? MYSQL : SQLITE;
+    }
+}
@@ -1,56 +1,84 @@
 package com.oceanami.parkour.listeners;
 
 import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.database.LatencyHistogram;
 import com.oceanami.parkour.manager.LocationCache;
 import com.oceanami.parkour.manager.ParkourManager;
-import com.oceanami.parkour.manager.PlateInfo;
+import com.oceanami.parkour.manager.RunClock;
+import com.oceanami.parkour.manager.SidebarEngine;
+import com.oceanami.parkour.manager.TriggerIndex;
+import com.oceanami.parkour.manager.CourseTrigger;
+import com.oceanami.parkour.manager.RegionTrigger;
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.PersonalBest;
+import com.oceanami.parkour.scheduler.TimingWheel;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
-import net.kyori.adventure.text.format.TextDecoration;
-import net.kyori.adventure.title.Title;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scoreboard.*;
+import org.bukkit.event.player.PlayerTeleportEvent;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class PlayerListener implements Listener {
 
-    private final ParkourManager parkourManager;
+    private static final int MAX_CROSSING_STEPS = 16;
+    // How far above a plate block's floor the feet may be and still press it
+    private static final double PLATE_CONTACT_HEIGHT = 0.25;
+    // Overlapping regions reported per move; more than this at one point is a misconfigured course
+    private static final int MAX_REGION_HITS = 8;
+    private static final long START_COOLDOWN_TICKS = 40L;
+    private static final long START_GRACE_TICKS = 40L;
+    private static final long AFK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long SIDEBAR_PERIOD_TICKS = 20L;
+    private static final long[] MOVE_TIMING_BOUNDS_NANOS = {
+            250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 1_000_000
+    };
+
     private final LocationCache locationCache;
     private final ParkourPlugin plugin;
-    private final Map<UUID, BukkitRunnable> playerTasks = new HashMap<>();
-    private final Map<UUID, Long> startGracePeriod = new HashMap<>();
-    private final Map<UUID, Long> interactionCooldown = new HashMap<>();
-
-
-    // AFK Tracking
-    private final Map<UUID, Long> lastMoveTime = new HashMap<>();
-    private final Map<UUID, Boolean> isPaused = new HashMap<>();
-    private final Map<UUID, Long> totalPausedTime = new HashMap<>();
-    private final Map<UUID, Long> pauseSystemTime = new HashMap<>();
-
-
-    public PlayerListener(ParkourManager parkourManager, LocationCache locationCache, ParkourPlugin plugin) {
-        this.parkourManager = parkourManager;
+    private final RunClock clock;
+    private final TimingWheel wheel;
+    private final Map<UUID, PlayerState> playerStates = new HashMap<>();
+    private final SidebarEngine sidebars = new SidebarEngine();
+    private final LatencyHistogram moveTimings = new LatencyHistogram(MOVE_TIMING_BOUNDS_NANOS);
+    // Reused by every move event; only touched on the main thread
+    private final RegionTrigger[] regionHits = new RegionTrigger[MAX_REGION_HITS];
+
+    public PlayerListener(LocationCache locationCache, ParkourPlugin plugin) {
         this.locationCache = locationCache;
         this.plugin = plugin;
+        this.clock = plugin.getParkourManager().getClock();
+        this.wheel = plugin.getTimingWheel();
+        // Players already online when the plugin is (re)enabled never fire a join event
+        Bukkit.getOnlinePlayers().forEach(player -> playerStates.put(player.getUniqueId(), new PlayerState()));
+        Bukkit.getScheduler().runTaskTimer(plugin, this::renderSidebars, SIDEBAR_PERIOD_TICKS, SIDEBAR_PERIOD_TICKS);
+    }
+
+    /**
+     * The current manager; a reload replaces it, along with the effects and settings it holds.
+     */
+    private ParkourManager parkourManager() {
+        return plugin.getParkourManager();
+    }
+
+    private PlayerState state(Player player) {
+        return playerStates.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerState());
     }
 
     @EventHandler
@@ -60,189 +88,339 @@ public class PlayerListener implements Listener {
         Block block = event.getClickedBlock();
         if (block == null || block.getType() != Material.LIGHT_WEIGHTED_PRESSURE_PLATE) return;
 
-        Optional<PlateInfo> plateInfoOptional = locationCache.getPlateInfo(block);
-        if (plateInfoOptional.isEmpty()) return;
-
-        PlateInfo plateInfo = plateInfoOptional.get();
+        // Triggers may not be indexed yet while loading, so every plate gets the loading message
+        boolean loading = !plugin.isReady();
+        if (!loading && !locationCache.hasTriggersInChunk(block.getWorld(), block.getX() >> 4, block.getZ() >> 4)) return;
 
+        // Plates fire every tick while stood on; only act when the player steps onto one
         Player player = event.getPlayer();
-        UUID playerUUID = player.getUniqueId();
-        ParkourManager.ParkourSession session = parkourManager.getSession(player);
-        String courseName = plateInfo.courseName();
+        PlayerState state = state(player);
+        long plateKey = TriggerIndex.pack(block.getX(), block.getY(), block.getZ());
+        if (state.isOnPlate(plateKey)) return;
+        state.currentPlate = plateKey;
+
+        if (loading) {
+            player.sendActionBar(ParkourPlugin.LOADING_MESSAGE);
+            return;
+        }
+
+        CourseTrigger trigger = locationCache.getPlateAt(block);
+        if (trigger != null) {
+            handleTrigger(player, state, trigger, clock.now());
+        }
+    }
 
+    /**
+     * @param at when the player reached the trigger on the {@link RunClock} timeline
+     */
+    private void handleTrigger(Player player, PlayerState state, CourseTrigger trigger, long at) {
+        ParkourManager.ParkourSession session = parkourManager().getSession(player);
+        String courseName = trigger.courseName();
 
-        boolean inCorrectCourse = session != null && session.courseName().equals(courseName);
+        boolean inCorrectCourse = session != null && session.courseId() == trigger.courseId();
 
-        switch (plateInfo.type()) {
-            case "START":
-                long now = System.currentTimeMillis();
-                if (interactionCooldown.getOrDefault(player.getUniqueId(), 0L) > now - 2000L) { // 2 second cooldown
+        switch (trigger.type()) {
+            case START:
+                if (state.isStartCoolingDown()) {
                     return;
                 }
 
                 if (session != null) {
                     // Always end the current session, whether it's the same course or a different one.
                     // This handles the "restart" case.
-                    parkourManager.endSession(player, false);
-                    stopScoreboard(player);
+                    parkourManager().endSession(player, false);
+                    stopScoreboard(player, state);
                 }
 
-                parkourManager.startSession(player, courseName);
+                parkourManager().startSession(player, courseName, at);
                 player.sendMessage(Component.text("Course started!").color(NamedTextColor.GREEN));
-                
-                startGracePeriod.put(playerUUID, System.currentTimeMillis());
-                startScoreboard(player);
-                interactionCooldown.put(player.getUniqueId(), now);
+
+                state.startCourse(wheel, START_COOLDOWN_TICKS, START_GRACE_TICKS);
+                startScoreboard(player, state, at);
                 break;
-            case "CHECKPOINT":
+            case CHECKPOINT:
                 if (inCorrectCourse) {
-                    if (plateInfo.checkpointOrder() > session.lastCheckpoint()) {
-                        parkourManager.updateCheckpoint(player, plateInfo.checkpointOrder());
+                    if (trigger.checkpointOrder() > session.lastCheckpoint()) {
+                        long split = RunClock.toMillis(at - session.startedAt() - state.totalPausedNanos);
+                        parkourManager().updateCheckpoint(player, trigger.checkpointOrder(), split);
                         player.sendMessage(Component.text("Checkpoint #", NamedTextColor.AQUA)
-                                .append(Component.text(String.valueOf(plateInfo.checkpointOrder()), NamedTextColor.YELLOW))
-                                .append(Component.text(" reached!", NamedTextColor.AQUA)));
+                                .append(Component.text(String.valueOf(trigger.checkpointOrder()), NamedTextColor.YELLOW))
+                                .append(Component.text(" reached!", NamedTextColor.AQUA))
+                                .append(splitDelta(player, session.courseId(), trigger.checkpointOrder(), split)));
                     }
                 }
                 break;
-            case "FINISH":
+            case FINISH:
                 if (inCorrectCourse) {
-                    long timePaused = totalPausedTime.getOrDefault(player.getUniqueId(), 0L);
-                    long timeTaken = (System.currentTimeMillis() - session.startTime() - timePaused) / 1000;
-                    parkourManager.endSession(player, true, timePaused);
-                    stopScoreboard(player);
-
-                    Component mainTitle = Component.text("Course Completed!", NamedTextColor.GREEN);
-                    Component subtitle = Component.text("Time: " + timeTaken + "s", NamedTextColor.YELLOW);
-                    Title.Times times = Title.Times.times(Duration.ofSeconds(1), Duration.ofSeconds(3), Duration.ofSeconds(1));
-                    Title title = Title.title(mainTitle, subtitle, times);
-                    player.showTitle(title);
+                    // The finish title comes from the course's effect profile
+                    parkourManager().endSession(player, true, state.totalPausedNanos, at);
+                    stopScoreboard(player, state);
+                }
+                break;
+            case FAIL:
+                if (inCorrectCourse) {
+                    session.lastCheckpointLocation().resolve().ifPresent(player::teleport);
+                    player.sendMessage(Component.text("Returned to your last checkpoint.", NamedTextColor.RED));
                 }
                 break;
         }
     }
 
+    /**
+     * The split compared with the player's best run, e.g. {@code " -1.10 vs PB"}, or nothing if
+     * the best run has no split for this checkpoint.
+     */
+    private Component splitDelta(Player player, int courseId, int checkpointOrder, long split) {
+        int best = plugin.getPersonalBestCache().getBestSplit(player.getUniqueId(), courseId, checkpointOrder);
+        if (best == PersonalBest.NO_SPLIT) {
+            return Component.empty();
+        }
+        long delta = split - best;
+        return Component.text(" " + ParkourManager.formatDelta(delta) + " vs PB",
+                delta <= 0 ? NamedTextColor.GREEN : NamedTextColor.RED);
+    }
+
     @EventHandler
     public void onPlayerMove(PlayerMoveEvent event) {
-        if (event.getFrom().getBlockX() == event.getTo().getBlockX() &&
-                event.getFrom().getBlockY() == event.getTo().getBlockY() &&
-                event.getFrom().getBlockZ() == event.getTo().getBlockZ()) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (from.getBlockX() == to.getBlockX() &&
+                from.getBlockY() == to.getBlockY() &&
+                from.getBlockZ() == to.getBlockZ()) {
             return;
         }
 
-        Player player = event.getPlayer();
-        UUID playerUUID = player.getUniqueId();
+        long startedAt = System.nanoTime();
+        try {
+            Player player = event.getPlayer();
+            // Lobby players outside any parkour chunk stop here after a map lookup and a bit test
+            if (!parkourManager().isPlaying(player)
+                    && !locationCache.hasTriggersInChunk(to.getWorld(), to.getBlockX() >> 4, to.getBlockZ() >> 4)) {
+                return;
+            }
+
+            PlayerState state = state(player);
+            state.leavePlate();
+
+            // Resume before looking for triggers, so a split or finish taken on this move leaves
+            // the AFK pause out of the time. Moves during the start grace period don't count
+            if (parkourManager().isPlaying(player) && !state.isInGracePeriod()) {
+                long now = clock.now();
+                state.lastMoveAt = now;
+
+                if (state.paused) {
+                    state.paused = false;
+                    state.totalPausedNanos += now - state.pausedAt;
+                    scheduleAfkCheck(player.getUniqueId(), state, AFK_TIMEOUT_NANOS);
+                    player.sendMessage(Component.text("Timer resumed!", NamedTextColor.GREEN));
+                }
+            }
+
+            if (plugin.isReady()) {
+                detectPlateCrossing(player, state, from, to);
+                detectRegionEntry(player, state, from, to);
+            }
+        } finally {
+            moveTimings.record(System.nanoTime() - startedAt);
+        }
+    }
 
-        if (startGracePeriod.containsKey(playerUUID)) {
-            if (System.currentTimeMillis() - startGracePeriod.get(playerUUID) > 2000) { // 2-second grace period
-                startGracePeriod.remove(playerUUID);
+    /**
+     * Walks the blocks between two positions and triggers the first plate the player's feet pass
+     * over. Fast movement can skip a plate block entirely, in which case no PHYSICAL interaction fires.
+     * The trigger is dated to the point where the move entered the plate, not to the end of the move.
+     */
+    private void detectPlateCrossing(Player player, PlayerState state, Location from, Location to) {
+        World world = to.getWorld();
+        double dx = to.getX() - from.getX();
+        double dy = to.getY() - from.getY();
+        double dz = to.getZ() - from.getZ();
+        double distance = Math.max(Math.abs(dx), Math.max(Math.abs(dy), Math.abs(dz)));
+        int steps = Math.min(MAX_CROSSING_STEPS, Math.max(1, (int) Math.ceil(distance * 2)));
+
+        long lastKey = Long.MIN_VALUE;
+        for (int i = 1; i <= steps; i++) {
+            double t = (double) i / steps;
+            double y = from.getY() + dy * t;
+            int blockX = (int) Math.floor(from.getX() + dx * t);
+            int blockY = (int) Math.floor(y);
+            int blockZ = (int) Math.floor(from.getZ() + dz * t);
+            long key = TriggerIndex.pack(blockX, blockY, blockZ);
+            // Skip repeated blocks and positions in the air above a plate
+            if (key == lastKey || y - blockY > PLATE_CONTACT_HEIGHT) continue;
+            lastKey = key;
+
+            CourseTrigger trigger = locationCache.getPlateAt(world, blockX, blockY, blockZ);
+            if (trigger != null && world.getBlockAt(blockX, blockY, blockZ).getType() == Material.LIGHT_WEIGHTED_PRESSURE_PLATE) {
+                state.currentPlate = key;
+                double entry = entryFraction(from, to, blockX, blockY, blockZ,
+                        blockX + 1, blockY + PLATE_CONTACT_HEIGHT, blockZ + 1, t);
+                handleTrigger(player, state, trigger, clock.at(entry));
+                return;
             }
-            return; // Don't check for falls during grace period
         }
+    }
 
+    /**
+     * Triggers every region the player just stepped into, dated to the point where the move crossed
+     * its boundary. Regions the player was already inside are skipped, so standing in one fires it once.
+     */
+    private void detectRegionEntry(Player player, PlayerState state, Location from, Location to) {
+        int hits = locationCache.getRegionsAt(to.getWorld(), to.getX(), to.getY(), to.getZ(), regionHits);
+        boolean sameWorld = from.getWorld() == to.getWorld();
+        for (int i = 0; i < hits; i++) {
+            RegionTrigger hit = regionHits[i];
+            regionHits[i] = null;
+            if (!sameWorld) {
+                handleTrigger(player, state, hit.trigger(), clock.now());
+            } else if (!hit.region().contains(from.getX(), from.getY(), from.getZ())) {
+                CuboidRegion region = hit.region();
+                double entry = entryFraction(from, to, region.minX(), region.minY(), region.minZ(),
+                        region.maxX() + 1, region.maxY() + 1, region.maxZ() + 1, 1.0);
+                handleTrigger(player, state, hit.trigger(), clock.at(entry));
+            }
+        }
+    }
 
-        if (!parkourManager.isPlaying(player)) return;
+    /**
+     * The fraction of the move from {@code from} to {@code to} at which it enters a box, found by
+     * clipping the segment against each axis. Returns {@code fallback} if the segment misses the box.
+     */
+    private static double entryFraction(Location from, Location to, double minX, double minY, double minZ,
+                                        double maxX, double maxY, double maxZ, double fallback) {
+        double[] start = {from.getX(), from.getY(), from.getZ()};
+        double[] delta = {to.getX() - start[0], to.getY() - start[1], to.getZ() - start[2]};
+        double[] min = {minX, minY, minZ};
+        double[] max = {maxX, maxY, maxZ};
+        double enter = 0.0;
+        double exit = 1.0;
+        for (int axis = 0; axis < 3; axis++) {
+            if (delta[axis] == 0.0) {
+                if (start[axis] < min[axis] || start[axis] > max[axis]) {
+                    return fallback;
+                }
+                continue;
+            }
+            double near = (min[axis] - start[axis]) / delta[axis];
+            double far = (max[axis] - start[axis]) / delta[axis];
+            enter = Math.max(enter, Math.min(near, far));
+            exit = Math.min(exit, Math.max(near, far));
+        }
+        return enter <= exit ? enter : fallback;
+    }
 
-        lastMoveTime.put(playerUUID, System.currentTimeMillis());
+    public LatencyHistogram getMoveTimings() {
+        return moveTimings;
+    }
 
-        if (isPaused.getOrDefault(playerUUID, false)) {
-            isPaused.put(playerUUID, false);
-            long pausedDuration = System.currentTimeMillis() - pauseSystemTime.get(playerUUID);
-            totalPausedTime.compute(playerUUID, (k, v) -> (v == null ? 0 : v) + pausedDuration);
-            player.sendMessage(Component.text("Timer resumed!", NamedTextColor.GREEN));
+    @EventHandler
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        PlayerState state = playerStates.get(event.getPlayer().getUniqueId());
+        if (state != null) {
+            state.leavePlate();
         }
     }
 
     @EventHandler
     public void onPlayerRespawn(PlayerRespawnEvent event) {
         Player player = event.getPlayer();
-        if (parkourManager.isPlaying(player)) {
-            ParkourManager.ParkourSession session = parkourManager.getSession(player);
-            if (session != null) {
-                event.setRespawnLocation(session.lastCheckpointLocation());
+        if (parkourManager().isPlaying(player)) {
+            ParkourManager.ParkourSession session = parkourManager().getSession(player);
+            Location checkpoint = session != null ? session.lastCheckpointLocation().resolve().orElse(null) : null;
+            if (checkpoint != null) {
+                event.setRespawnLocation(checkpoint);
                 player.sendMessage(Component.text("Returned to your last checkpoint.", NamedTextColor.YELLOW));
             }
         }
     }
 
 
-    private void startScoreboard(Player player) {
-        UUID playerUUID = player.getUniqueId();
-        ScoreboardManager manager = Bukkit.getScoreboardManager();
-        Scoreboard board = manager.getNewScoreboard();
-        Objective objective = board.registerNewObjective("parkour_time", Criteria.DUMMY, Component.text("Time", NamedTextColor.YELLOW, TextDecoration.BOLD));
-        objective.setDisplaySlot(DisplaySlot.SIDEBAR);
-        player.setScoreboard(board);
-
-        lastMoveTime.put(playerUUID, System.currentTimeMillis());
-        isPaused.put(playerUUID, false);
-        totalPausedTime.put(playerUUID, 0L);
-        pauseSystemTime.put(playerUUID, 0L);
-
-
-        BukkitRunnable runnable = new BukkitRunnable() {
-            @Override
-            public void run() {
-                ParkourManager.ParkourSession session = parkourManager.getSession(player);
-                if (session == null) {
-                    this.cancel();
-                    return;
-                }
-
-                if (!isPaused.getOrDefault(playerUUID, false) &&
-                        System.currentTimeMillis() - lastMoveTime.getOrDefault(playerUUID, System.currentTimeMillis()) > 30000) {
-                    isPaused.put(playerUUID, true);
-                    pauseSystemTime.put(playerUUID, System.currentTimeMillis());
-                    player.sendMessage(Component.text("AFK detected. Parkour timer paused.", NamedTextColor.GRAY));
-                    return;
-                }
-
-                if (isPaused.getOrDefault(playerUUID, false)) {
-                    return;
-                }
-
-                Set<String> activeEntries = new HashSet<>();
-                for (ParkourManager.ParkourSession activeSession : parkourManager.getActiveSessions()) {
-                    Player p = activeSession.player();
-                    UUID uuid = p.getUniqueId();
-                    long paused = totalPausedTime.getOrDefault(uuid, 0L);
-                    long elapsed = (System.currentTimeMillis() - activeSession.startTime() - paused) / 1000;
-                    objective.getScore(p.getName()).setScore((int) elapsed);
-                    activeEntries.add(p.getName());
-                }
-
-                for (String entry : board.getEntries()) {
-                    if (!activeEntries.contains(entry)) {
-                        board.resetScores(entry);
-                    }
-                }
-
-            }
-        };
-        playerTasks.put(playerUUID, runnable);
-        runnable.runTaskTimer(plugin, 0, 20);
+    private void startScoreboard(Player player, PlayerState state, long startedAt) {
+        ParkourManager.ParkourSession session = parkourManager().getSession(player);
+        if (session == null) {
+            return; // The course could not be started
+        }
+        state.startTimer(startedAt);
+        scheduleAfkCheck(player.getUniqueId(), state, AFK_TIMEOUT_NANOS);
+        sidebars.show(player, session.courseId(), session.courseName());
     }
 
-    private void stopScoreboard(Player player) {
-        UUID playerUUID = player.getUniqueId();
-        BukkitRunnable task = playerTasks.remove(playerUUID);
-        if (task != null) {
-            task.cancel();
+    private void stopScoreboard(Player player, PlayerState state) {
+        sidebars.hide(player);
+        state.stopTimer();
+    }
+
+    /**
+     * Checks for AFK once the player could have been idle long enough, instead of sweeping every
+     * runner on a timer. Moving does not touch the wheel; the check reschedules itself for the
+     * remaining time if the player moved meanwhile.
+     */
+    private void scheduleAfkCheck(UUID playerId, PlayerState state, long delayNanos) {
+        long delayTicks = (delayNanos + RunClock.TICK_NANOS - 1) / RunClock.TICK_NANOS;
+        state.afkCheck = wheel.schedule(delayTicks, () -> checkAfk(playerId));
+    }
+
+    private void checkAfk(UUID playerId) {
+        PlayerState state = playerStates.get(playerId);
+        if (state == null || !state.timing || state.paused) {
+            return;
+        }
+        long now = clock.now();
+        long idle = now - state.lastMoveAt;
+        if (idle < AFK_TIMEOUT_NANOS) {
+            scheduleAfkCheck(playerId, state, AFK_TIMEOUT_NANOS - idle);
+            return;
+        }
+        state.paused = true;
+        state.pausedAt = now;
+        Player player = Bukkit.getPlayer(playerId);
+        if (player != null) {
+            player.sendMessage(Component.text("AFK detected. Parkour timer paused.", NamedTextColor.GRAY));
         }
-        player.setScoreboard(Bukkit.getScoreboardManager().getNewScoreboard());
+    }
 
-        lastMoveTime.remove(playerUUID);
-        isPaused.remove(playerUUID);
-        totalPausedTime.remove(playerUUID);
-        pauseSystemTime.remove(playerUUID);
+    /**
+     * Redraws every course sidebar once.
+     */
+    private void renderSidebars() {
+        long now = clock.now();
+        sidebars.render(parkourManager().getActiveSessions(), session -> getElapsedMillis(session, now));
+    }
+
+    /**
+     * Time a session has been running, not counting AFK pauses.
+     *
+     * @param now a reading of the {@link RunClock}
+     */
+    public long getElapsedMillis(ParkourManager.ParkourSession session, long now) {
+        PlayerState state = playerStates.get(session.playerId());
+        long nanos = state != null ? state.elapsedNanos(session.startedAt(), now) : now - session.startedAt();
+        return RunClock.toMillis(nanos);
     }
 
 
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        playerStates.put(event.getPlayer().getUniqueId(), new PlayerState());
+        // Players who join before the schema is migrated are loaded once it is
+        if (plugin.isSchemaReady()) {
+            plugin.getPersonalBestCache().load(event.getPlayer().getUniqueId());
+        }
+    }
+
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
-        if (parkourManager.isPlaying(player)) {
-            parkourManager.endSession(player, false);
-            stopScoreboard(player);
+        PlayerState state = playerStates.remove(player.getUniqueId());
+        if (state != null) {
+            state.cancelTimers();
+        }
+        if (parkourManager().isPlaying(player)) {
+            parkourManager().endSession(player, false);
+            if (state != null) {
+                stopScoreboard(player, state);
+            }
         }
+        plugin.getPersonalBestCache().evict(player.getUniqueId());
     }
 }
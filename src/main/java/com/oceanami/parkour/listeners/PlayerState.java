@@ -0,0 +1,94 @@
+package com.oceanami.parkour.listeners;
+
+import com.oceanami.parkour.scheduler.TimingWheel;
+
+/**
+ * Everything {@link PlayerListener} tracks about one online player, kept in primitive fields so an
+ * event needs a single map lookup and never boxes. Created when the player joins and dropped when
+ * they quit, so nothing outlives the connection. Times are nanoseconds on the
+ * {@link com.oceanami.parkour.manager.RunClock} timeline.
+ */
+final class PlayerState {
+
+    private static final long NONE = Long.MIN_VALUE;
+    private static final Runnable NOTHING = () -> { };
+
+    // Pending from the start of a course until the start plate cooldown or fall grace period ends
+    private TimingWheel.Timeout startCooldown;
+    private TimingWheel.Timeout gracePeriod;
+
+    // Packed block key of the plate the player is standing on, cleared once they leave the block
+    long currentPlate = NONE;
+
+    // Session timer and AFK tracking
+    boolean timing;
+    long lastMoveAt;
+    boolean paused;
+    long pausedAt;
+    long totalPausedNanos;
+    TimingWheel.Timeout afkCheck;
+
+    boolean isOnPlate(long plateKey) {
+        return currentPlate == plateKey;
+    }
+
+    void leavePlate() {
+        currentPlate = NONE;
+    }
+
+    boolean isStartCoolingDown() {
+        return startCooldown != null && startCooldown.isPending();
+    }
+
+    boolean isInGracePeriod() {
+        return gracePeriod != null && gracePeriod.isPending();
+    }
+
+    void startCourse(TimingWheel wheel, long cooldownTicks, long graceTicks) {
+        cancel(startCooldown);
+        cancel(gracePeriod);
+        startCooldown = wheel.schedule(cooldownTicks, NOTHING);
+        gracePeriod = wheel.schedule(graceTicks, NOTHING);
+    }
+
+    /**
+     * Starts AFK tracking for a new session.
+     */
+    void startTimer(long now) {
+        timing = true;
+        lastMoveAt = now;
+        paused = false;
+        pausedAt = 0L;
+        totalPausedNanos = 0L;
+    }
+
+    void stopTimer() {
+        timing = false;
+        paused = false;
+        totalPausedNanos = 0L;
+        cancel(afkCheck);
+        afkCheck = null;
+    }
+
+    /**
+     * Drops every pending deadline, once the player is gone.
+     */
+    void cancelTimers() {
+        cancel(startCooldown);
+        cancel(gracePeriod);
+        cancel(afkCheck);
+    }
+
+    private static void cancel(TimingWheel.Timeout timeout) {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Session time excluding AFK pauses; frozen while the player is paused.
+     */
+    long elapsedNanos(long sessionStart, long now) {
+        return (paused ? pausedAt : now) - sessionStart - totalPausedNanos;
+    }
+}
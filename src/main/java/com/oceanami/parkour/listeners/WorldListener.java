@@ -0,0 +1,30 @@
+package com.oceanami.parkour.listeners;
+
+import com.oceanami.parkour.manager.LocationCache;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Binds and releases cached parkour plates as worlds load and unload.
+ */
+public class WorldListener implements Listener {
+
+    private final LocationCache locationCache;
+
+    public WorldListener(LocationCache locationCache) {
+        this.locationCache = locationCache;
+    }
+
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent event) {
+        locationCache.bindWorld(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        locationCache.releaseWorld(event.getWorld());
+    }
+}
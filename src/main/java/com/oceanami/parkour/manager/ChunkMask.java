@@ -0,0 +1,104 @@
+package com.oceanami.parkour.manager;
+
+import java.util.Collection;
+
+/**
+ * Immutable set of chunks that contain at least one parkour trigger. Chunks are kept as a bitmap
+ * over their bounding box, or in a linear-probing hash set when the triggers are spread too far
+ * apart for a bitmap to stay small. Either way a lookup does not allocate.
+ */
+final class ChunkMask {
+
+    private static final long MAX_BITMAP_BITS = 1L << 22; // 512 KiB
+
+    private final int minX;
+    private final int minZ;
+    private final int width;
+    private final int height;
+    private final long[] bitmap;
+    private final long[] sparseKeys;
+    private final boolean[] sparseUsed;
+
+    ChunkMask(Collection<Long> chunkKeys) {
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (long key : chunkKeys) {
+            minX = Math.min(minX, chunkX(key));
+            maxX = Math.max(maxX, chunkX(key));
+            minZ = Math.min(minZ, chunkZ(key));
+            maxZ = Math.max(maxZ, chunkZ(key));
+        }
+        long width = chunkKeys.isEmpty() ? 0 : (long) maxX - minX + 1;
+        long height = chunkKeys.isEmpty() ? 0 : (long) maxZ - minZ + 1;
+
+        if (width * height <= MAX_BITMAP_BITS) {
+            this.minX = minX;
+            this.minZ = minZ;
+            this.width = (int) width;
+            this.height = (int) height;
+            this.bitmap = new long[(int) ((width * height + 63) >>> 6)];
+            for (long key : chunkKeys) {
+                int bit = (chunkZ(key) - minZ) * this.width + (chunkX(key) - minX);
+                bitmap[bit >>> 6] |= 1L << bit;
+            }
+            this.sparseKeys = null;
+            this.sparseUsed = null;
+        } else {
+            this.minX = 0;
+            this.minZ = 0;
+            this.width = 0;
+            this.height = 0;
+            this.bitmap = null;
+            int capacity = Integer.highestOneBit(Math.max(4, chunkKeys.size() * 2 - 1)) << 1;
+            this.sparseKeys = new long[capacity];
+            this.sparseUsed = new boolean[capacity];
+            for (long key : chunkKeys) {
+                int slot = slot(key);
+                while (sparseUsed[slot] && sparseKeys[slot] != key) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                sparseKeys[slot] = key;
+                sparseUsed[slot] = true;
+            }
+        }
+    }
+
+    static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int chunkZ(long key) {
+        return (int) key;
+    }
+
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & (sparseKeys.length - 1);
+    }
+
+    boolean contains(int chunkX, int chunkZ) {
+        if (bitmap == null) {
+            long key = key(chunkX, chunkZ);
+            int slot = slot(key);
+            while (sparseUsed[slot]) {
+                if (sparseKeys[slot] == key) {
+                    return true;
+                }
+                slot = (slot + 1) & (sparseKeys.length - 1);
+            }
+            return false;
+        }
+        int x = chunkX - minX;
+        int z = chunkZ - minZ;
+        if (x < 0 || z < 0 || x >= width || z >= height) {
+            return false;
+        }
+        int bit = z * width + x;
+        return (bitmap[bit >>> 6] & (1L << bit)) != 0;
+    }
+}
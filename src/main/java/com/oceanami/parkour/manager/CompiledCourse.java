@@ -0,0 +1,232 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.StoredLocation;
+import com.oceanami.parkour.model.TriggerType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable, fully resolved view of one course: its locations, checkpoints indexed by order and
+ * the triggers derived from them. {@link LocationCache} replaces a whole course at once, so
+ * readers on any thread never see one that is half reloaded.
+ */
+public final class CompiledCourse {
+
+    /**
+     * Block position of a plate, keyed by world name until the world is loaded.
+     */
+    record PlatePosition(String worldName, int x, int y, int z) {
+    }
+
+    private final int id;
+    private final String name;
+    private final long revision;
+    private final StoredLocation start;
+    private final StoredLocation finish;
+    private final StoredLocation customRestartPoint;
+    private final StoredLocation customResetPoint;
+    // Indexed by checkpoint order; unused orders are null
+    private final StoredLocation[] checkpoints;
+    private final int checkpointCount;
+    private final Map<Integer, CuboidRegion> regions;
+    private final Map<PlatePosition, CourseTrigger> plates;
+    private final List<RegionTrigger> regionTriggers;
+    private final Set<String> worldNames;
+
+    private CompiledCourse(Builder builder) {
+        this.id = builder.id;
+        this.name = builder.name;
+        this.revision = builder.revision;
+        this.start = builder.start;
+        this.finish = builder.finish;
+        this.customRestartPoint = builder.customRestartPoint;
+        this.customResetPoint = builder.customResetPoint;
+
+        int maxOrder = builder.checkpoints.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        this.checkpoints = new StoredLocation[maxOrder + 1];
+        builder.checkpoints.forEach((order, loc) -> {
+            if (order >= 0) {
+                checkpoints[order] = loc;
+            }
+        });
+        this.checkpointCount = builder.checkpoints.size();
+
+        Map<PlatePosition, CourseTrigger> plateMap = new HashMap<>();
+        addPlate(plateMap, start, TriggerType.START, 0);
+        addPlate(plateMap, finish, TriggerType.FINISH, 0);
+        for (int order = 0; order < checkpoints.length; order++) {
+            addPlate(plateMap, checkpoints[order], TriggerType.CHECKPOINT, order);
+        }
+        this.plates = Collections.unmodifiableMap(plateMap);
+
+        this.regions = Collections.unmodifiableMap(new TreeMap<>(builder.regions));
+        List<RegionTrigger> triggers = new ArrayList<>(regions.size());
+        for (CuboidRegion region : regions.values()) {
+            triggers.add(new RegionTrigger(region, new CourseTrigger(id, name, region.type(), region.checkpointOrder())));
+        }
+        this.regionTriggers = Collections.unmodifiableList(triggers);
+
+        Set<String> worlds = new HashSet<>();
+        plates.keySet().forEach(position -> worlds.add(position.worldName()));
+        regions.values().forEach(region -> worlds.add(region.worldName()));
+        this.worldNames = Set.copyOf(worlds);
+    }
+
+    private void addPlate(Map<PlatePosition, CourseTrigger> plateMap, StoredLocation loc, TriggerType type, int order) {
+        if (loc != null) {
+            plateMap.put(new PlatePosition(loc.worldName(), loc.blockX(), loc.blockY(), loc.blockZ()),
+                    new CourseTrigger(id, name, type, order));
+        }
+    }
+
+    static Builder builder(int id, String name, long revision) {
+        return new Builder(id, name, revision);
+    }
+
+    Builder toBuilder() {
+        Builder builder = new Builder(id, name, revision);
+        builder.start = start;
+        builder.finish = finish;
+        builder.customRestartPoint = customRestartPoint;
+        builder.customResetPoint = customResetPoint;
+        for (int order = 0; order < checkpoints.length; order++) {
+            if (checkpoints[order] != null) {
+                builder.checkpoints.put(order, checkpoints[order]);
+            }
+        }
+        builder.regions.putAll(regions);
+        return builder;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * The {@code courses.revision} this course was loaded at, or -1 if it was changed locally since.
+     */
+    public long revision() {
+        return revision;
+    }
+
+    public StoredLocation start() {
+        return start;
+    }
+
+    public StoredLocation finish() {
+        return finish;
+    }
+
+    public StoredLocation customRestartPoint() {
+        return customRestartPoint;
+    }
+
+    public StoredLocation customResetPoint() {
+        return customResetPoint;
+    }
+
+    /**
+     * Returns the checkpoint with the given order, or {@code null} if there is none.
+     */
+    public StoredLocation checkpoint(int order) {
+        return order >= 0 && order < checkpoints.length ? checkpoints[order] : null;
+    }
+
+    /**
+     * One past the highest checkpoint order, for iterating with {@link #checkpoint(int)}.
+     */
+    public int checkpointLimit() {
+        return checkpoints.length;
+    }
+
+    public int checkpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Regions of this course keyed by their database id.
+     */
+    public Map<Integer, CuboidRegion> regions() {
+        return regions;
+    }
+
+    Map<PlatePosition, CourseTrigger> plates() {
+        return plates;
+    }
+
+    List<RegionTrigger> regionTriggers() {
+        return regionTriggers;
+    }
+
+    /**
+     * Names of the worlds holding any of this course's plates or regions.
+     */
+    Set<String> worldNames() {
+        return worldNames;
+    }
+
+    int locationCount() {
+        return (start != null ? 1 : 0) + (finish != null ? 1 : 0) + checkpointCount
+                + (customRestartPoint != null ? 1 : 0) + (customResetPoint != null ? 1 : 0);
+    }
+
+    static final class Builder {
+        private final int id;
+        private final String name;
+        private long revision;
+        private StoredLocation start;
+        private StoredLocation finish;
+        private StoredLocation customRestartPoint;
+        private StoredLocation customResetPoint;
+        private final Map<Integer, StoredLocation> checkpoints = new HashMap<>();
+        private final Map<Integer, CuboidRegion> regions = new HashMap<>();
+
+        private Builder(int id, String name, long revision) {
+            this.id = id;
+            this.name = name;
+            this.revision = revision;
+        }
+
+        Builder revision(long revision) {
+            this.revision = revision;
+            return this;
+        }
+
+        Builder location(String type, int order, StoredLocation loc) {
+            switch (type) {
+                case "START" -> start = loc;
+                case "FINISH" -> finish = loc;
+                case "CHECKPOINT" -> checkpoints.put(order, loc);
+                case "CUSTOM_RESTART" -> customRestartPoint = loc;
+                case "CUSTOM_RESET" -> customResetPoint = loc;
+            }
+            return this;
+        }
+
+        Builder region(CuboidRegion region) {
+            regions.put(region.id(), region);
+            return this;
+        }
+
+        Builder removeRegion(int id) {
+            regions.remove(id);
+            return this;
+        }
+
+        CompiledCourse build() {
+            return new CompiledCourse(this);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.TriggerType;
+
+/**
+ * A plate or region of a course. Carries the course id so the move and interact handlers can
+ * match a trigger against a session with an int comparison.
+ */
+public record CourseTrigger(int courseId, String courseName, TriggerType type, int checkpointOrder) {
+}
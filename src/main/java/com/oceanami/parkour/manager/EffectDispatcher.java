@@ -0,0 +1,173 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.ParkourPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Queues checkpoint and finish effects and sends them once per tick within a packet budget, so a
+ * crowd crossing the same checkpoint cannot flood clients. Identical effects in the same block
+ * during one tick are merged. Each effect goes to its runner first at full detail, then to
+ * players nearby with fewer particles the further away they are; sounds only reach close players.
+ * Effects left when the budget is spent are dropped, not delayed. Main thread only.
+ */
+public class EffectDispatcher {
+
+    private record Key(EffectProfile.Burst burst, UUID worldId, int x, int y, int z) {
+    }
+
+    private record Pending(EffectProfile.Burst burst, Location location, UUID ownerId) {
+    }
+
+    private final ParkourPlugin plugin;
+    private final int packetBudget;
+    private final int maxQueued;
+    private final double viewDistance;
+    private final double viewDistanceSquared;
+    private final double fullDetailDistanceSquared;
+    private final double soundDistanceSquared;
+    // Insertion order, so effects are served first come first served when the budget runs out
+    private final Map<Key, Pending> queued = new LinkedHashMap<>();
+    private final Location viewerLocation = new Location(null, 0, 0, 0);
+    private BukkitTask task;
+
+    private long submitted;
+    private long merged;
+    private long dropped;
+    private long packets;
+
+    public EffectDispatcher(ParkourPlugin plugin) {
+        this.plugin = plugin;
+        this.packetBudget = Math.max(1, plugin.getConfig().getInt("effects.max-packets-per-tick", 200));
+        this.maxQueued = packetBudget * 4;
+        this.viewDistance = Math.max(0.0, plugin.getConfig().getDouble("effects.view-distance", 24.0));
+        this.viewDistanceSquared = viewDistance * viewDistance;
+        double fullDetail = plugin.getConfig().getDouble("effects.full-detail-distance", 8.0);
+        this.fullDetailDistanceSquared = fullDetail * fullDetail;
+        double sound = plugin.getConfig().getDouble("effects.sound-distance", 12.0);
+        this.soundDistanceSquared = sound * sound;
+    }
+
+    public void start() {
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::flush, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queued.clear();
+    }
+
+    /**
+     * Queues an effect at the runner's position for the end of this tick.
+     */
+    public void submit(Player owner, EffectProfile.Burst burst) {
+        submitted++;
+        Location location = owner.getLocation();
+        Key key = new Key(burst, location.getWorld().getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        if (queued.containsKey(key)) {
+            merged++;
+            return;
+        }
+        if (queued.size() >= maxQueued) {
+            dropped++;
+            return;
+        }
+        queued.put(key, new Pending(burst, location, owner.getUniqueId()));
+    }
+
+    private void flush() {
+        if (queued.isEmpty()) {
+            return;
+        }
+        int remaining = packetBudget;
+        for (Pending pending : queued.values()) {
+            if (remaining <= 0) {
+                dropped++;
+                continue;
+            }
+            remaining -= send(pending, remaining);
+        }
+        queued.clear();
+    }
+
+    /**
+     * @return packets sent for the effect, at most {@code budget}
+     */
+    private int send(Pending pending, int budget) {
+        int sent = 0;
+        Player owner = Bukkit.getPlayer(pending.ownerId());
+        if (owner != null) {
+            sent += show(owner, pending, 0.0, budget);
+        }
+        World world = pending.location().getWorld();
+        if (viewDistanceSquared > 0.0 && world != null) {
+            for (Player viewer : world.getNearbyPlayers(pending.location(), viewDistance)) {
+                if (sent >= budget) {
+                    break;
+                }
+                if (viewer == owner) {
+                    continue;
+                }
+                double distanceSquared = viewer.getLocation(viewerLocation).distanceSquared(pending.location());
+                if (distanceSquared <= viewDistanceSquared) {
+                    sent += show(viewer, pending, distanceSquared, budget - sent);
+                }
+            }
+        }
+        packets += sent;
+        return sent;
+    }
+
+    private int show(Player viewer, Pending pending, double distanceSquared, int budget) {
+        EffectProfile.Burst burst = pending.burst();
+        Location at = pending.location();
+        int sent = 0;
+        if (burst.particle() != null && sent < budget) {
+            viewer.spawnParticle(burst.particle(), at, particleCount(burst.count(), distanceSquared),
+                    burst.offsetX(), burst.offsetY(), burst.offsetZ());
+            sent++;
+        }
+        if (burst.sound() != null && sent < budget && distanceSquared <= soundDistanceSquared) {
+            viewer.playSound(at, burst.sound(), 1.0f, 1.0f);
+            sent++;
+        }
+        return sent;
+    }
+
+    /**
+     * Full detail up close, half up to twice that distance, a quarter beyond.
+     */
+    private int particleCount(int count, double distanceSquared) {
+        if (distanceSquared <= fullDetailDistanceSquared) {
+            return count;
+        }
+        int divisor = distanceSquared <= fullDetailDistanceSquared * 4 ? 2 : 4;
+        return Math.max(1, count / divisor);
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getMerged() {
+        return merged;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getPackets() {
+        return packets;
+    }
+}
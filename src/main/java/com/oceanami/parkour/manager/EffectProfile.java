@@ -0,0 +1,36 @@
+package com.oceanami.parkour.manager;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.title.Title;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+
+/**
+ * The checkpoint and finish effects of a course, compiled from config.yml once per load so playing
+ * them needs no parsing or lookups. Effects that are disabled are null.
+ */
+public record EffectProfile(Burst checkpoint, Burst finish, TitleTemplate finishTitle) {
+
+    /**
+     * Particles and a sound played at the player through the {@link EffectDispatcher}. A part
+     * whose name was invalid is null and skipped.
+     */
+    public record Burst(Particle particle, int count, double offsetX, double offsetY, double offsetZ, Sound sound) {
+    }
+
+    /**
+     * A title parsed once; only a subtitle containing {@code {time}} is touched per finish, by
+     * replacing the literal in the parsed components.
+     */
+    public record TitleTemplate(Component title, Component subtitle, boolean subtitleHasTime, Title.Times times) {
+        public static final String TIME_PLACEHOLDER = "{time}";
+
+        public Title render(String formattedTime) {
+            Component filled = subtitleHasTime
+                    ? subtitle.replaceText(TextReplacementConfig.builder().matchLiteral(TIME_PLACEHOLDER).replacement(formattedTime).build())
+                    : subtitle;
+            return Title.title(title, filled, times);
+        }
+    }
+}
@@ -3,77 +3,153 @@ package com.oceanami.parkour.manager;
 import com.oceanami.parkour.ParkourPlugin;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import net.kyori.adventure.title.Title;
-import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
 import java.time.Duration;
-
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Plays checkpoint and finish effects from {@link EffectProfile}s compiled when the manager is
+ * created, i.e. on every load and reload. Courses listed under {@code course-effects} get their
+ * own profile, falling back to the global settings for every key they leave out. Invalid names
+ * are reported once while compiling.
+ */
 public class EffectsManager {
 
+    private static final String COURSE_EFFECTS = "course-effects";
+
     private final ParkourPlugin plugin;
     private final FileConfiguration config;
     private final MiniMessage miniMessage;
+    private final EffectProfile defaultProfile;
+    private final Map<String, EffectProfile> courseProfiles;
 
     public EffectsManager(ParkourPlugin plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfig();
         this.miniMessage = MiniMessage.miniMessage();
+        this.defaultProfile = compile("", null);
+
+        Map<String, EffectProfile> profiles = new HashMap<>();
+        ConfigurationSection overrides = config.getConfigurationSection(COURSE_EFFECTS);
+        if (overrides != null) {
+            for (String courseName : overrides.getKeys(false)) {
+                profiles.put(courseName.toLowerCase(Locale.ROOT),
+                        compile(COURSE_EFFECTS + "." + courseName + ".", overrides.getConfigurationSection(courseName)));
+            }
+        }
+        this.courseProfiles = Map.copyOf(profiles);
     }
 
-    public void playCheckpointEffect(Player player) {
-        if (!config.getBoolean("checkpoint-effect.enabled", true)) return;
-
-        Location loc = player.getLocation();
-        try {
-            Particle particle = Particle.valueOf(config.getString("checkpoint-effect.particle", "VILLAGER_HAPPY").toUpperCase());
-            Sound sound = Sound.valueOf(config.getString("checkpoint-effect.sound", "ENTITY_PLAYER_LEVELUP").toUpperCase());
+    public EffectProfile getProfile(String courseName) {
+        return courseProfiles.getOrDefault(courseName.toLowerCase(Locale.ROOT), defaultProfile);
+    }
 
-            player.spawnParticle(particle, loc, 30, 0.5, 0.5, 0.5);
-            player.playSound(loc, sound, 1.0f, 1.0f);
-        } catch (IllegalArgumentException e) {
-            plugin.getLogger().warning("Invalid particle or sound name in config.yml for checkpoint effect.");
+    public void playCheckpointEffect(Player player, String courseName) {
+        EffectProfile.Burst checkpoint = getProfile(courseName).checkpoint();
+        if (checkpoint != null) {
+            plugin.getEffectDispatcher().submit(player, checkpoint);
         }
     }
 
-    public void playFinishEffect(Player player, String formattedTime) {
-        if (!config.getBoolean("finish-effect.enabled", true)) return;
+    public void playFinishEffect(Player player, String courseName, String formattedTime) {
+        EffectProfile profile = getProfile(courseName);
+        if (profile.finish() == null) return;
 
-        Location loc = player.getLocation();
-        try {
-            Particle particle = Particle.valueOf(config.getString("finish-effect.particle", "TOTEM_OF_UNDYING").toUpperCase());
-            Sound sound = Sound.valueOf(config.getString("finish-effect.sound", "UI_TOAST_CHALLENGE_COMPLETE").toUpperCase());
-
-            player.spawnParticle(particle, loc, 50, 0.5, 1, 0.5);
-            player.playSound(loc, sound, 1.0f, 1.0f);
+        plugin.getEffectDispatcher().submit(player, profile.finish());
+        if (profile.finishTitle() != null) {
+            player.showTitle(profile.finishTitle().render(formattedTime));
+        }
+    }
 
-            if (config.getBoolean("finish-effect.title.enabled", true)) {
-                // Using MiniMessage for modern color parsing. Note: Configs should use MiniMessage format e.g., <green><bold>
-                String titleStr = config.getString("finish-effect.title.line1", "<green><bold>VICTORY!</bold></green>");
-                String subtitleStr = config.getString("finish-effect.title.line2", "<white>Time: <yellow>{time}</yellow></white>").replace("{time}", formattedTime);
+    /**
+     * @param source   config path prefix of the override, for warnings
+     * @param override the course's section, or null for the global profile
+     */
+    private EffectProfile compile(String source, ConfigurationSection override) {
+        EffectProfile.Burst checkpoint = getBoolean(override, "checkpoint-effect.enabled", true)
+                ? new EffectProfile.Burst(
+                        particle(source, override, "checkpoint-effect.particle", "VILLAGER_HAPPY"), 30, 0.5, 0.5, 0.5,
+                        sound(source, override, "checkpoint-effect.sound", "ENTITY_PLAYER_LEVELUP"))
+                : null;
+
+        EffectProfile.Burst finish = null;
+        EffectProfile.TitleTemplate finishTitle = null;
+        if (getBoolean(override, "finish-effect.enabled", true)) {
+            finish = new EffectProfile.Burst(
+                    particle(source, override, "finish-effect.particle", "TOTEM_OF_UNDYING"), 50, 0.5, 1, 0.5,
+                    sound(source, override, "finish-effect.sound", "UI_TOAST_CHALLENGE_COMPLETE"));
+            if (getBoolean(override, "finish-effect.title.enabled", true)) {
+                finishTitle = titleTemplate(override);
+            }
+        }
+        return new EffectProfile(checkpoint, finish, finishTitle);
+    }
 
-                Component titleComponent = miniMessage.deserialize(titleStr);
-                Component subtitleComponent = miniMessage.deserialize(subtitleStr);
+    private EffectProfile.TitleTemplate titleTemplate(ConfigurationSection override) {
+        String titleText = getString(override, "finish-effect.title.line1", "<green><bold>VICTORY!</bold></green>");
+        String subtitleText = getString(override, "finish-effect.title.line2", "<white>Time: <yellow>{time}</yellow></white>");
+
+        // 1 tick = 50 milliseconds. Convert ticks from config to Duration.
+        Title.Times times = Title.Times.times(
+                Duration.ofMillis(getLong(override, "finish-effect.title.fade-in", 10) * 50L),
+                Duration.ofMillis(getLong(override, "finish-effect.title.stay", 70) * 50L),
+                Duration.ofMillis(getLong(override, "finish-effect.title.fade-out", 20) * 50L)
+        );
+        return new EffectProfile.TitleTemplate(parse(titleText), parse(subtitleText),
+                subtitleText.contains(EffectProfile.TitleTemplate.TIME_PLACEHOLDER), times);
+    }
 
-                long fadeIn = config.getLong("finish-effect.title.fade-in", 10);
-                long stay = config.getLong("finish-effect.title.stay", 70);
-                long fadeOut = config.getLong("finish-effect.title.fade-out", 20);
+    /**
+     * Reads MiniMessage, e.g. {@code <green><bold>}, or legacy {@code &} codes as used by the
+     * default config.
+     */
+    private Component parse(String text) {
+        if (text.indexOf('<') < 0 && text.indexOf('&') >= 0) {
+            return LegacyComponentSerializer.legacyAmpersand().deserialize(text);
+        }
+        return miniMessage.deserialize(text);
+    }
 
-                // 1 tick = 50 milliseconds. Convert ticks from config to Duration.
-                Title.Times times = Title.Times.times(
-                        Duration.ofMillis(fadeIn * 50L),
-                        Duration.ofMillis(stay * 50L),
-                        Duration.ofMillis(fadeOut * 50L)
-                );
-                Title title = Title.title(titleComponent, subtitleComponent, times);
+    private Particle particle(String source, ConfigurationSection override, String path, String def) {
+        String name = getString(override, path, def);
+        try {
+            return Particle.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Invalid particle '" + name + "' at " + source + path + " in config.yml, it will not be shown.");
+            return null;
+        }
+    }
 
-                player.showTitle(title);
-            }
+    private Sound sound(String source, ConfigurationSection override, String path, String def) {
+        String name = getString(override, path, def);
+        try {
+            return Sound.valueOf(name.toUpperCase(Locale.ROOT));
         } catch (IllegalArgumentException e) {
-            plugin.getLogger().warning("Invalid particle, sound, or title settings in config.yml for finish effect.");
+            plugin.getLogger().warning("Invalid sound '" + name + "' at " + source + path + " in config.yml, it will not be played.");
+            return null;
         }
     }
+
+    // Course values win over the global ones, key by key
+
+    private String getString(ConfigurationSection override, String path, String def) {
+        return override != null && override.contains(path) ? override.getString(path, def) : config.getString(path, def);
+    }
+
+    private boolean getBoolean(ConfigurationSection override, String path, boolean def) {
+        return override != null && override.contains(path) ? override.getBoolean(path, def) : config.getBoolean(path, def);
+    }
+
+    private long getLong(ConfigurationSection override, String path, long def) {
+        return override != null && override.contains(path) ? override.getLong(path, def) : config.getLong(path, def);
+    }
 }
@@ -0,0 +1,269 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.cache.GhostStore;
+import com.oceanami.parkour.model.GhostTrack;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.EulerAngle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records every run and races runners against the ghost of their personal best. Recorders sample
+ * each runner once per tick into a pooled buffer of fixed size; finished runs are offered to the
+ * {@link GhostStore}, which keeps only the fastest per player and course, and holds a course's
+ * ghosts in memory while it is being recorded. A ghost is an armor stand shown only to its owner,
+ * moved along the decoded track one frame per tick.
+ * <p>
+ * Lives as long as the plugin, like the session registry. Main thread only.
+ */
+public class GhostManager {
+
+    // Idle recorders kept for reuse; beyond this they are left to the garbage collector
+    private static final int MAX_POOLED_RECORDERS = 16;
+
+    private final ParkourPlugin plugin;
+    private final GhostStore store;
+    private final boolean enabled;
+    private final boolean replay;
+    private final int recorderCapacity;
+    private final Map<UUID, GhostRecorder> recorders = new HashMap<>();
+    private final List<GhostRecorder> activeRecorders = new ArrayList<>();
+    private final ArrayDeque<GhostRecorder> pool = new ArrayDeque<>();
+    private final Map<UUID, Playback> playbacks = new HashMap<>();
+    private final List<Playback> activePlaybacks = new ArrayList<>();
+    private final Location sample = new Location(null, 0, 0, 0);
+    private BukkitTask task;
+
+    public GhostManager(ParkourPlugin plugin) {
+        this.plugin = plugin;
+        this.store = new GhostStore(plugin);
+        this.enabled = plugin.getConfig().getBoolean("ghosts.enabled", true);
+        this.replay = plugin.getConfig().getBoolean("ghosts.replay", true);
+        this.recorderCapacity = Math.max(1, plugin.getConfig().getInt("ghosts.max-recording-kb", 128)) * 1024;
+    }
+
+    public void start() {
+        if (enabled) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Removes every ghost and writes stored ghosts that have not been saved yet.
+     */
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+        }
+        activePlaybacks.forEach(Playback::remove);
+        activePlaybacks.clear();
+        playbacks.clear();
+        store.shutdown();
+    }
+
+    /**
+     * Starts recording a run, and replays the player's best run on the course alongside it. A run
+     * that is already being recorded for the player is discarded.
+     */
+    public void startRun(Player player, int courseId) {
+        if (!enabled) {
+            return;
+        }
+        UUID playerId = player.getUniqueId();
+        discard(playerId);
+
+        GhostRecorder recorder = pool.isEmpty() ? new GhostRecorder(recorderCapacity) : pool.poll();
+        recorder.begin(playerId, courseId, player.getWorld().getName());
+        store.retain(courseId);
+        recorders.put(playerId, recorder);
+        activeRecorders.add(recorder);
+
+        if (replay) {
+            Object run = recorder.run();
+            store.get(courseId, playerId).thenAcceptAsync(track -> {
+                // Skip if the run ended or restarted while the file was read; the recorder may be
+                // the same pooled one by then, so its run is compared too
+                if (track.isPresent() && recorders.get(playerId) == recorder
+                        && recorder.run() == run && recorder.courseId() == courseId) {
+                    Player online = Bukkit.getPlayer(playerId);
+                    if (online != null) {
+                        startPlayback(online, track.get());
+                    }
+                }
+            }, Bukkit.getScheduler().getMainThreadExecutor(plugin));
+        }
+    }
+
+    /**
+     * Ends the player's recording. A completed run is kept if it beats their stored ghost.
+     *
+     * @param timeMillis the run time, or a negative value if the run was not completed
+     */
+    public void finishRun(Player player, long timeMillis) {
+        UUID playerId = player.getUniqueId();
+        GhostRecorder recorder = recorders.get(playerId);
+        if (recorder != null && timeMillis >= 0) {
+            GhostTrack track = recorder.toTrack(player.getName(), timeMillis);
+            if (track != null) {
+                store.offer(track);
+            }
+        }
+        discard(playerId);
+    }
+
+    private void discard(UUID playerId) {
+        GhostRecorder recorder = recorders.remove(playerId);
+        if (recorder != null) {
+            activeRecorders.remove(recorder);
+            store.release(recorder.courseId());
+            if (pool.size() < MAX_POOLED_RECORDERS) {
+                pool.push(recorder);
+            }
+        }
+        Playback playback = playbacks.remove(playerId);
+        if (playback != null) {
+            activePlaybacks.remove(playback);
+            playback.remove();
+        }
+    }
+
+    private void startPlayback(Player viewer, GhostTrack track) {
+        World world = Bukkit.getWorld(track.worldName());
+        GhostTrack.Cursor cursor = track.cursor();
+        if (world == null || !cursor.next()) {
+            return;
+        }
+        Location origin = new Location(world, 0, 0, 0);
+        cursor.apply(origin);
+        ArmorStand stand = world.spawn(origin, ArmorStand.class, ghost -> {
+            // Only the runner sees their ghost, and it is never saved with the world
+            ghost.setVisibleByDefault(false);
+            ghost.setPersistent(false);
+            ghost.setMarker(true);
+            ghost.setInvulnerable(true);
+            ghost.setSilent(true);
+            ghost.setGravity(false);
+            ghost.setBasePlate(false);
+            ghost.setVisible(false);
+            ghost.customName(Component.text(track.playerName() + " (PB)", NamedTextColor.GRAY));
+            ghost.setCustomNameVisible(true);
+            ghost.getEquipment().setHelmet(head(viewer));
+        });
+        viewer.showEntity(plugin, stand);
+
+        Playback playback = new Playback(stand, cursor, origin);
+        Playback previous = playbacks.put(viewer.getUniqueId(), playback);
+        if (previous != null) {
+            activePlaybacks.remove(previous);
+            previous.remove();
+        }
+        activePlaybacks.add(playback);
+    }
+
+    private static ItemStack head(Player owner) {
+        ItemStack head = new ItemStack(Material.PLAYER_HEAD);
+        if (head.getItemMeta() instanceof SkullMeta meta) {
+            meta.setOwningPlayer(owner);
+            head.setItemMeta(meta);
+        }
+        return head;
+    }
+
+    private void tick() {
+        for (int i = 0; i < activeRecorders.size(); i++) {
+            GhostRecorder recorder = activeRecorders.get(i);
+            Player player = Bukkit.getPlayer(recorder.playerId());
+            if (player != null) {
+                recorder.record(player.getLocation(sample));
+            }
+        }
+        for (int i = activePlaybacks.size() - 1; i >= 0; i--) {
+            Playback playback = activePlaybacks.get(i);
+            if (!playback.advance()) {
+                playback.remove();
+                activePlaybacks.remove(i);
+                playbacks.values().remove(playback);
+            }
+        }
+    }
+
+    public int getRecorderCount() {
+        return activeRecorders.size();
+    }
+
+    /**
+     * Bytes of recorded frames held by active recorders.
+     */
+    public long getRecordedBytes() {
+        long bytes = 0;
+        for (GhostRecorder recorder : activeRecorders) {
+            bytes += recorder.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Bytes reserved for recording, by active and pooled recorders together.
+     */
+    public long getReservedBytes() {
+        return (long) (activeRecorders.size() + pool.size()) * recorderCapacity;
+    }
+
+    public int getPlaybackCount() {
+        return activePlaybacks.size();
+    }
+
+    public GhostStore getStore() {
+        return store;
+    }
+
+    /**
+     * One ghost being replayed; the location is reused for every frame.
+     */
+    private static final class Playback {
+        private final ArmorStand stand;
+        private final GhostTrack.Cursor cursor;
+        private final Location location;
+
+        private Playback(ArmorStand stand, GhostTrack.Cursor cursor, Location location) {
+            this.stand = stand;
+            this.cursor = cursor;
+            this.location = location;
+        }
+
+        /**
+         * @return false once the track ended or the ghost is gone
+         */
+        private boolean advance() {
+            if (!stand.isValid() || !cursor.next()) {
+                return false;
+            }
+            cursor.apply(location);
+            stand.teleport(location);
+            if (cursor.isPitchChanged()) {
+                stand.setHeadPose(new EulerAngle(Math.toRadians(cursor.pitch()), 0, 0));
+            }
+            return true;
+        }
+
+        private void remove() {
+            stand.remove();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.GhostTrack;
+import org.bukkit.Location;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Records one run into a fixed buffer that is reused for the runner's next run, so recording
+ * allocates nothing per tick and never grows. A run that does not fit, or that changes world, is
+ * dropped instead of kept partially. Main thread only.
+ */
+final class GhostRecorder {
+
+    private final byte[] buffer;
+    private UUID playerId;
+    private int courseId;
+    // New for every run, as the recorder itself is reused
+    private Object run;
+    private String worldName;
+    private int length;
+    private int frames;
+    private boolean usable;
+    private int lastX;
+    private int lastY;
+    private int lastZ;
+    private byte lastYaw;
+    private byte lastPitch;
+
+    GhostRecorder(int capacityBytes) {
+        this.buffer = new byte[capacityBytes];
+    }
+
+    void begin(UUID playerId, int courseId, String worldName) {
+        this.playerId = playerId;
+        this.courseId = courseId;
+        this.worldName = worldName;
+        this.run = new Object();
+        length = 0;
+        frames = 0;
+        usable = true;
+        lastX = 0;
+        lastY = 0;
+        lastZ = 0;
+        lastYaw = 0;
+        lastPitch = 0;
+    }
+
+    void record(Location location) {
+        if (!usable) {
+            return;
+        }
+        if (length + GhostTrack.MAX_FRAME_BYTES > buffer.length || !worldName.equals(location.getWorld().getName())) {
+            usable = false;
+            return;
+        }
+        int x = GhostTrack.quantize(location.getX());
+        int y = GhostTrack.quantize(location.getY());
+        int z = GhostTrack.quantize(location.getZ());
+        byte yaw = GhostTrack.quantizeAngle(location.getYaw());
+        byte pitch = GhostTrack.quantizeAngle(location.getPitch());
+        length = GhostTrack.writeVarInt(buffer, length, x - lastX);
+        length = GhostTrack.writeVarInt(buffer, length, y - lastY);
+        length = GhostTrack.writeVarInt(buffer, length, z - lastZ);
+        buffer[length++] = (byte) (yaw - lastYaw);
+        buffer[length++] = (byte) (pitch - lastPitch);
+        lastX = x;
+        lastY = y;
+        lastZ = z;
+        lastYaw = yaw;
+        lastPitch = pitch;
+        frames++;
+    }
+
+    /**
+     * Copies the recording out, or returns null if the run could not be recorded completely.
+     */
+    GhostTrack toTrack(String playerName, long timeMillis) {
+        if (!usable || frames == 0) {
+            return null;
+        }
+        return new GhostTrack(playerId, playerName, courseId, worldName, timeMillis, frames, Arrays.copyOf(buffer, length));
+    }
+
+    UUID playerId() {
+        return playerId;
+    }
+
+    int courseId() {
+        return courseId;
+    }
+
+    /**
+     * Identifies the run being recorded; a different object after every {@link #begin}.
+     */
+    Object run() {
+        return run;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+}
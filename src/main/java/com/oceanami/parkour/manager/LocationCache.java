@@ -1,149 +1,433 @@
 package com.oceanami.parkour.manager;
 
 import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.cache.CourseSnapshot;
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.StoredLocation;
+import com.oceanami.parkour.model.TriggerType;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Level;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 /**
- * Stores parkour-related locations. Internal maps are thread-safe and may be
- * updated from asynchronous tasks. Returned {@link Location} objects must only
- * be used on the main thread when interacting with the Bukkit API.
+ * Holds every course as an immutable {@link CompiledCourse}. All courses and the trigger index
+ * built from them live in one {@link Registry} that is replaced with a single volatile write, so
+ * any thread sees either the old or the new state, never a mix. Reloads only re-read courses whose
+ * {@code revision} changed, and a change to some courses only re-indexes the worlds they are in.
+ * <p>
+ * Courses are looked up by id, or by name ignoring case like {@link com.oceanami.parkour.cache.CourseCache}.
+ * Locations are kept by world name and resolved on demand, so courses in worlds that are not
+ * loaded yet still load. Plates and cuboid regions are added to the {@link TriggerIndex} when their world loads and
+ * dropped again when it unloads. Returned {@link Location} objects are fresh copies and must only be used
+ * on the main thread when interacting with the Bukkit API.
  */
 public class LocationCache {
 
+    private record CourseRow(int id, String name, long revision) {
+    }
+
+    /**
+     * @param byWorld ids of the courses with triggers in each world, by world name
+     */
+    private record Registry(Map<Integer, CompiledCourse> byId, Map<String, CompiledCourse> byName,
+                            Map<String, Set<Integer>> byWorld, TriggerIndex triggers) {
+        static final Registry EMPTY = new Registry(Map.of(), Map.of(), Map.of(), TriggerIndex.EMPTY);
+    }
+
+    private static final String LOCATION_COLUMNS = "l.type, l.checkpoint_order, l.world, l.x, l.y, l.z, l.yaw, l.pitch";
+    private static final String REGION_COLUMNS = "r.id, r.type, r.checkpoint_order, r.world, r.min_x, r.min_y, r.min_z, r.max_x, r.max_y, r.max_z";
+
     private final ParkourPlugin plugin;
-    private final Map<String, Location> startLocations = new ConcurrentHashMap<>();
-    private final Map<String, Location> finishLocations = new ConcurrentHashMap<>();
-    private final Map<String, Map<Integer, Location>> checkpoints = new ConcurrentHashMap<>();
-    private final Map<String, Location> customRestartPoints = new ConcurrentHashMap<>();
-    private final Map<String, Location> customResetPoints = new ConcurrentHashMap<>();
-
-    // Direct lookup map for plate locations keyed by world UUID and block coordinates
-    private final Map<BlockKey, PlateInfo> plateInfoMap = new ConcurrentHashMap<>();
+    private volatile Registry registry = Registry.EMPTY;
+
+    // UUIDs of the loaded worlds, keyed by name; only triggers in these worlds are indexed
+    private final Map<String, UUID> loadedWorlds = new ConcurrentHashMap<>();
 
     public LocationCache(ParkourPlugin plugin) {
         this.plugin = plugin;
+        Bukkit.getWorlds().forEach(world -> loadedWorlds.put(world.getName(), world.getUID()));
     }
 
-    public void loadLocations() {
-        clearAllLocations();
-        String sql = "SELECT c.name, l.type, l.checkpoint_order, l.world, l.x, l.y, l.z, l.yaw, l.pitch FROM locations l JOIN courses c ON l.course_id = c.id";
-        try (Connection conn = plugin.getDatabaseManager().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
+    /**
+     * Brings the cache in line with the database. The first load reads every location with one
+     * query; later loads only read the courses whose revision differs from the cached one.
+     */
+    public void loadLocations() throws SQLException {
+        try (Connection conn = plugin.getDatabaseManager().getReadConnection()) {
+            Map<Integer, CompiledCourse> cached = registry.byId();
+            List<CourseRow> rows = loadCourseRows(conn);
+            List<CourseRow> changed = rows.stream().filter(row -> {
+                CompiledCourse course = cached.get(row.id());
+                return course == null || course.revision() != row.revision() || !course.name().equals(row.name());
+            }).toList();
+
+            List<CompiledCourse> loaded = cached.isEmpty()
+                    ? loadAllCourses(conn, changed)
+                    : loadCourses(conn, changed);
+
+            Set<Integer> ids = rows.stream().map(CourseRow::id).collect(Collectors.toSet());
+            List<Integer> removed = cached.keySet().stream().filter(id -> !ids.contains(id)).toList();
+            if (!loaded.isEmpty() || !removed.isEmpty()) {
+                swapUnlessEdited(cached, loaded, removed);
+            }
+
+            int locationCount = loaded.stream().mapToInt(CompiledCourse::locationCount).sum();
+            plugin.getLogger().info("Reloaded " + locationCount + " locations of " + changed.size() + "/" + rows.size()
+                    + " courses from the database" + (removed.isEmpty() ? "." : ", removed " + removed.size() + "."));
+        }
+    }
+
+    private List<CourseRow> loadCourseRows(Connection conn) throws SQLException {
+        List<CourseRow> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, name, revision FROM courses");
              ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(new CourseRow(rs.getInt("id"), rs.getString("name"), rs.getLong("revision")));
+            }
+        }
+        return rows;
+    }
 
+    private List<CompiledCourse> loadAllCourses(Connection conn, List<CourseRow> courses) throws SQLException {
+        Map<Integer, CompiledCourse.Builder> builders = new HashMap<>();
+        for (CourseRow course : courses) {
+            builders.put(course.id(), CompiledCourse.builder(course.id(), course.name(), course.revision()));
+        }
+        String sql = "SELECT l.course_id, " + LOCATION_COLUMNS + " FROM locations l";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                String courseName = rs.getString("name");
-                String type = rs.getString("type");
-                Location loc = new Location(
-                        Bukkit.getWorld(rs.getString("world")),
-                        rs.getDouble("x"),
-                        rs.getDouble("y"),
-                        rs.getDouble("z"),
-                        rs.getFloat("yaw"),
-                        rs.getFloat("pitch")
-                );
+                CompiledCourse.Builder builder = builders.get(rs.getInt("course_id"));
+                if (builder != null) {
+                    readLocation(rs, builder);
+                }
+            }
+        }
+        sql = "SELECT r.course_id, " + REGION_COLUMNS + " FROM regions r";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                CompiledCourse.Builder builder = builders.get(rs.getInt("course_id"));
+                if (builder != null) {
+                    builder.region(readRegion(rs));
+                }
+            }
+        }
+        return builders.values().stream().map(CompiledCourse.Builder::build).toList();
+    }
 
-                switch (type) {
-                    case "START" -> {
-                        startLocations.put(courseName, loc);
-                        addPlateInfo(loc, new PlateInfo(courseName, "START", 0));
-                    }
-                    case "FINISH" -> {
-                        finishLocations.put(courseName, loc);
-                        addPlateInfo(loc, new PlateInfo(courseName, "FINISH", 0));
+    private List<CompiledCourse> loadCourses(Connection conn, List<CourseRow> courses) throws SQLException {
+        List<CompiledCourse> loaded = new ArrayList<>(courses.size());
+        String sql = "SELECT " + LOCATION_COLUMNS + " FROM locations l WHERE l.course_id = ?";
+        String regionSql = "SELECT " + REGION_COLUMNS + " FROM regions r WHERE r.course_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             PreparedStatement regionStmt = conn.prepareStatement(regionSql)) {
+            for (CourseRow course : courses) {
+                CompiledCourse.Builder builder = CompiledCourse.builder(course.id(), course.name(), course.revision());
+                pstmt.setInt(1, course.id());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        readLocation(rs, builder);
                     }
-                    case "CHECKPOINT" -> {
-                        int order = rs.getInt("checkpoint_order");
-                        checkpoints.computeIfAbsent(courseName, k -> new ConcurrentHashMap<>()).put(order, loc);
-                        addPlateInfo(loc, new PlateInfo(courseName, "CHECKPOINT", order));
+                }
+                regionStmt.setInt(1, course.id());
+                try (ResultSet rs = regionStmt.executeQuery()) {
+                    while (rs.next()) {
+                        builder.region(readRegion(rs));
                     }
-                    case "CUSTOM_RESTART" -> customRestartPoints.put(courseName, loc);
-                    case "CUSTOM_RESET" -> customResetPoints.put(courseName, loc);
                 }
+                loaded.add(builder.build());
             }
-            plugin.getLogger().info("Loaded " + (startLocations.size() + finishLocations.size() + checkpoints.size()) + " locations from the database.");
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not load locations from database", e);
         }
+        return loaded;
+    }
+
+    private void readLocation(ResultSet rs, CompiledCourse.Builder builder) throws SQLException {
+        StoredLocation loc = new StoredLocation(
+                rs.getString("world"),
+                rs.getDouble("x"),
+                rs.getDouble("y"),
+                rs.getDouble("z"),
+                rs.getFloat("yaw"),
+                rs.getFloat("pitch")
+        );
+        builder.location(rs.getString("type"), rs.getInt("checkpoint_order"), loc);
     }
 
-    public void addStartLocation(String courseName, Location loc) {
-        startLocations.put(courseName, loc);
-        addPlateInfo(loc, new PlateInfo(courseName, "START", 0));
+    private CuboidRegion readRegion(ResultSet rs) throws SQLException {
+        return new CuboidRegion(
+                rs.getInt("id"),
+                TriggerType.valueOf(rs.getString("type")),
+                rs.getInt("checkpoint_order"),
+                rs.getString("world"),
+                rs.getInt("min_x"), rs.getInt("min_y"), rs.getInt("min_z"),
+                rs.getInt("max_x"), rs.getInt("max_y"), rs.getInt("max_z")
+        );
+    }
+
+    /**
+     * Seeds an empty cache from a snapshot. Each course keeps the snapshot's revision, so the
+     * following database load only re-reads courses that changed since it was written.
+     */
+    public void applySnapshot(CourseSnapshot snapshot) {
+        List<CompiledCourse> courses = new ArrayList<>();
+        for (CourseSnapshot.CourseEntry course : snapshot.getCourses()) {
+            CompiledCourse.Builder builder = CompiledCourse.builder(course.id(), course.name(), course.revision());
+            course.locations().forEach(entry -> builder.location(entry.type(), entry.checkpointOrder(), entry.location()));
+            course.regions().forEach(builder::region);
+            courses.add(builder.build());
+        }
+        swap(courses, List.of());
+    }
+
+    public Optional<CompiledCourse> getCourse(int courseId) {
+        return Optional.ofNullable(registry.byId().get(courseId));
     }
 
-    public void addFinishLocation(String courseName, Location loc) {
-        finishLocations.put(courseName, loc);
-        addPlateInfo(loc, new PlateInfo(courseName, "FINISH", 0));
+    /**
+     * Looks a course up by name, ignoring case.
+     */
+    public Optional<CompiledCourse> getCourse(String courseName) {
+        return Optional.ofNullable(registry.byName().get(courseName.toLowerCase()));
     }
 
-    public void addCheckpoint(String courseName, int order, Location loc) {
-        checkpoints.computeIfAbsent(courseName, k -> new ConcurrentHashMap<>()).put(order, loc);
-        addPlateInfo(loc, new PlateInfo(courseName, "CHECKPOINT", order));
+    /**
+     * The cuboid regions of a course, ordered by id.
+     */
+    public Collection<CuboidRegion> getRegions(String courseName) {
+        return getCourse(courseName).map(course -> course.regions().values()).orElse(List.of());
     }
 
-    public void addCustomRestartPoint(String courseName, Location loc) {
-        customRestartPoints.put(courseName, loc);
+    public void addStartLocation(int courseId, String courseName, Location loc) {
+        updateLocation(courseId, courseName, "START", 0, loc);
     }
 
-    public void addCustomResetPoint(String courseName, Location loc) {
-        customResetPoints.put(courseName, loc);
+    public void addFinishLocation(int courseId, String courseName, Location loc) {
+        updateLocation(courseId, courseName, "FINISH", 0, loc);
+    }
+
+    public void addCheckpoint(int courseId, String courseName, int order, Location loc) {
+        updateLocation(courseId, courseName, "CHECKPOINT", order, loc);
+    }
+
+    public void addCustomRestartPoint(int courseId, String courseName, Location loc) {
+        updateLocation(courseId, courseName, "CUSTOM_RESTART", 0, loc);
+    }
+
+    public void addCustomResetPoint(int courseId, String courseName, Location loc) {
+        updateLocation(courseId, courseName, "CUSTOM_RESET", 0, loc);
     }
 
+    public void addRegion(int courseId, String courseName, CuboidRegion region) {
+        updateCourse(courseId, courseName, builder -> builder.region(region));
+    }
+
+    public void removeRegion(int courseId, String courseName, int regionId) {
+        updateCourse(courseId, courseName, builder -> builder.removeRegion(regionId));
+    }
+
     public Optional<Location> getStartLocation(String courseName) {
-        return Optional.ofNullable(startLocations.get(courseName));
+        return getCourse(courseName).map(CompiledCourse::start).flatMap(StoredLocation::resolve);
     }
 
     public Optional<Location> getFinishLocation(String courseName) {
-        return Optional.ofNullable(finishLocations.get(courseName));
+        return getCourse(courseName).map(CompiledCourse::finish).flatMap(StoredLocation::resolve);
     }
 
     public Optional<Location> getCheckpoint(String courseName, int order) {
-        return Optional.ofNullable(checkpoints.get(courseName)).map(cps -> cps.get(order));
+        return getCourse(courseName).map(course -> course.checkpoint(order)).flatMap(StoredLocation::resolve);
     }
 
     public Optional<Location> getCustomRestartPoint(String courseName) {
-        return Optional.ofNullable(customRestartPoints.get(courseName));
+        return getCourse(courseName).map(CompiledCourse::customRestartPoint).flatMap(StoredLocation::resolve);
     }
 
     public Optional<Location> getCustomResetPoint(String courseName) {
-        return Optional.ofNullable(customResetPoints.get(courseName));
+        return getCourse(courseName).map(CompiledCourse::customResetPoint).flatMap(StoredLocation::resolve);
     }
 
-    public Optional<PlateInfo> getPlateInfo(Block block) {
-        if (block == null || block.getWorld() == null) {
-            return Optional.empty();
+    /**
+     * Returns the plate at a block, or {@code null} if there is none. Runs on every physical
+     * interaction, so it does not allocate.
+     */
+    public CourseTrigger getPlateAt(Block block) {
+        return registry.triggers().get(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    public CourseTrigger getPlateAt(World world, int x, int y, int z) {
+        return registry.triggers().get(world, x, y, z);
+    }
+
+    /**
+     * Collects the regions containing a point into {@code out} without allocating.
+     *
+     * @return the number of regions written
+     */
+    public int getRegionsAt(World world, double x, double y, double z, RegionTrigger[] out) {
+        return registry.triggers().regionsAt(world, x, y, z, out);
+    }
+
+    public boolean hasTriggersInChunk(World world, int chunkX, int chunkZ) {
+        return registry.triggers().hasTriggersInChunk(world, chunkX, chunkZ);
+    }
+
+    public int getPlateCount() {
+        return registry.triggers().size();
+    }
+
+    public int getRegionCount() {
+        return registry.triggers().regionCount();
+    }
+
+    private void updateLocation(int courseId, String courseName, String type, int order, Location loc) {
+        StoredLocation stored = StoredLocation.of(loc);
+        updateCourse(courseId, courseName, builder -> builder.location(type, order, stored));
+    }
+
+    /**
+     * Applies a change that was just written to the database. The course is marked with an
+     * unknown revision so the next reload re-reads it once.
+     */
+    private synchronized void updateCourse(int courseId, String courseName, UnaryOperator<CompiledCourse.Builder> change) {
+        CompiledCourse current = registry.byId().get(courseId);
+        CompiledCourse.Builder builder = current != null ? current.toBuilder() : CompiledCourse.builder(courseId, courseName, -1);
+        swap(List.of(change.apply(builder.revision(-1)).build()), List.of());
+    }
+
+    /**
+     * Publishes the result of a reload, except for courses edited while it read the database. Their
+     * entry is no longer the one the reload started from; it keeps the edit, which is marked with
+     * revision -1 and therefore read again by the next reload.
+     */
+    private synchronized void swapUnlessEdited(Map<Integer, CompiledCourse> base, List<CompiledCourse> loaded, List<Integer> removed) {
+        Map<Integer, CompiledCourse> current = registry.byId();
+        swap(loaded.stream().filter(course -> current.get(course.id()) == base.get(course.id())).toList(),
+                removed.stream().filter(id -> current.get(id) == base.get(id)).toList());
+    }
+
+    /**
+     * Makes the triggers of a freshly loaded world reachable.
+     */
+    public synchronized void bindWorld(World world) {
+        UUID previous = loadedWorlds.put(world.getName(), world.getUID());
+        Registry current = registry;
+        TriggerIndex triggers = current.triggers();
+        if (previous != null && !previous.equals(world.getUID())) {
+            // Loaded again under a new UUID without us seeing it unload
+            triggers = triggers.replaceWorlds(List.of(previous), TriggerIndex.EMPTY);
+        }
+        triggers = reindex(triggers, Set.of(world.getName()), current.byId(), current.byWorld());
+        registry = new Registry(current.byId(), current.byName(), current.byWorld(), triggers);
+        int bound = triggers.size() - current.triggers().size();
+        if (bound > 0) {
+            plugin.getLogger().info("Bound " + bound + " parkour plates in world " + world.getName() + ".");
         }
-        BlockKey key = new BlockKey(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
-        return Optional.ofNullable(plateInfoMap.get(key));
     }
 
-    private void addPlateInfo(Location loc, PlateInfo plateInfo) {
-        if (loc.getWorld() == null) {
-            return; // Cannot store without world
+    /**
+     * Drops every trigger of an unloading world so nothing refers to it any more.
+     */
+    public synchronized void releaseWorld(World world) {
+        if (loadedWorlds.remove(world.getName(), world.getUID())) {
+            Registry current = registry;
+            registry = new Registry(current.byId(), current.byName(), current.byWorld(),
+                    current.triggers().replaceWorlds(List.of(world.getUID()), TriggerIndex.EMPTY));
         }
-        BlockKey key = new BlockKey(loc.getWorld().getUID(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
-        plateInfoMap.put(key, plateInfo);
     }
-
-
-    public void clearAllLocations() {
-        startLocations.clear();
-        finishLocations.clear();
-        checkpoints.clear();
-        customRestartPoints.clear();
-        customResetPoints.clear();
-        plateInfoMap.clear();
+
+    /**
+     * Builds the next registry from the current one with some courses replaced or removed and
+     * publishes it. Only the trigger tables of the worlds those courses have triggers in are
+     * rebuilt; every other world keeps its table. Lookups keep using the previous registry until
+     * then, so no course or trigger is ever missing mid-update.
+     */
+    private synchronized void swap(Collection<CompiledCourse> updated, Collection<Integer> removedIds) {
+        Registry current = registry;
+        Map<Integer, CompiledCourse> byId = new HashMap<>(current.byId());
+        Map<String, CompiledCourse> byName = new HashMap<>(current.byName());
+        Map<String, Set<Integer>> byWorld = new HashMap<>(current.byWorld());
+        // Worlds whose triggers change; their course id sets are copied before they are modified
+        Set<String> affected = new HashSet<>();
+
+        for (CompiledCourse course : updated) {
+            unlink(byId.put(course.id(), course), byName, byWorld, affected);
+            byName.put(course.name().toLowerCase(), course);
+            for (String worldName : course.worldNames()) {
+                courseIds(byWorld, affected, worldName).add(course.id());
+            }
+        }
+        for (int courseId : removedIds) {
+            unlink(byId.remove(courseId), byName, byWorld, affected);
+        }
+        byWorld.values().removeIf(Set::isEmpty);
+
+        TriggerIndex triggers = reindex(current.triggers(), affected, byId, byWorld);
+        registry = new Registry(Map.copyOf(byId), Map.copyOf(byName), Map.copyOf(byWorld), triggers);
+    }
+
+    private static void unlink(CompiledCourse old, Map<String, CompiledCourse> byName,
+                               Map<String, Set<Integer>> byWorld, Set<String> affected) {
+        if (old == null) {
+            return;
+        }
+        byName.remove(old.name().toLowerCase(), old);
+        for (String worldName : old.worldNames()) {
+            courseIds(byWorld, affected, worldName).remove(old.id());
+        }
+    }
+
+    private static Set<Integer> courseIds(Map<String, Set<Integer>> byWorld, Set<String> affected, String worldName) {
+        if (affected.add(worldName)) {
+            byWorld.put(worldName, new HashSet<>(byWorld.getOrDefault(worldName, Set.of())));
+        }
+        return byWorld.get(worldName);
+    }
+
+    /**
+     * Rebuilds the trigger tables of the given worlds that are loaded from the courses in them.
+     */
+    private TriggerIndex reindex(TriggerIndex triggers, Set<String> worldNames,
+                                 Map<Integer, CompiledCourse> byId, Map<String, Set<Integer>> byWorld) {
+        List<UUID> replaced = new ArrayList<>();
+        TriggerIndex.Builder rebuilt = TriggerIndex.builder();
+        for (String worldName : worldNames) {
+            UUID worldId = loadedWorlds.get(worldName);
+            if (worldId == null) {
+                continue;
+            }
+            replaced.add(worldId);
+            for (int courseId : byWorld.getOrDefault(worldName, Set.of())) {
+                CompiledCourse course = byId.get(courseId);
+                course.plates().forEach((position, trigger) -> {
+                    if (position.worldName().equals(worldName)) {
+                        rebuilt.add(worldId, position.x(), position.y(), position.z(), trigger);
+                    }
+                });
+                for (RegionTrigger trigger : course.regionTriggers()) {
+                    if (trigger.region().worldName().equals(worldName)) {
+                        rebuilt.addRegion(worldId, trigger);
+                    }
+                }
+            }
+        }
+        return replaced.isEmpty() ? triggers : triggers.replaceWorlds(replaced, rebuilt.build());
     }
 }
@@ -4,54 +4,69 @@ import com.oceanami.parkour.ParkourPlugin;
 import com.oceanami.parkour.cache.CourseCache;
 import com.oceanami.parkour.database.PlayerTimeDAO;
 import com.oceanami.parkour.model.Course;
+import com.oceanami.parkour.model.PersonalBest;
+import com.oceanami.parkour.model.StoredLocation;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Manages active parkour sessions. This manager is not thread-safe and should only be
- * accessed from the Bukkit main thread. Any asynchronous callbacks must schedule their
- * interactions back onto the main thread before invoking its methods.
+ * Manages active parkour sessions. Sessions are stored in a {@link SessionRegistry} that any
+ * thread may read, but starting, ending or updating a session must happen on the Bukkit main
+ * thread. Any asynchronous callbacks must schedule their interactions back onto the main thread
+ * before invoking those methods.
  */
 public class ParkourManager {
 
     private final ParkourPlugin plugin;
     private final UIManager uiManager;
-    private final Map<UUID, ParkourSession> playerSessions;
+    private final SessionRegistry sessions;
+    private final RunClock clock;
+    private final GhostManager ghosts;
     private final EffectsManager effectsManager;
     private final PlayerTimeDAO playerTimeDAO;
     private final CourseCache courseCache;
     private final LocationCache locationCache;
     private final boolean teleportOnStart;
 
-    public ParkourManager(ParkourPlugin plugin, UIManager uiManager, CourseCache courseCache, LocationCache locationCache) {
+    public ParkourManager(ParkourPlugin plugin, UIManager uiManager, CourseCache courseCache, LocationCache locationCache,
+                          SessionRegistry sessions, RunClock clock) {
         this.plugin = plugin;
         this.uiManager = uiManager;
         this.courseCache = courseCache;
         this.locationCache = locationCache;
-        this.playerSessions = new HashMap<>();
+        this.sessions = sessions;
+        this.clock = clock;
+        this.ghosts = plugin.getGhostManager();
         this.effectsManager = new EffectsManager(plugin);
         this.playerTimeDAO = new PlayerTimeDAO(plugin, courseCache);
         this.teleportOnStart = plugin.getConfig().getBoolean("teleport-on-start", true);
     }
 
     public void startSession(Player player, String courseName) {
+        startSession(player, courseName, clock.now());
+    }
+
+    /**
+     * @param startedAt when the run began on the {@link RunClock} timeline, e.g. the moment the
+     *                  player crossed the start plate
+     */
+    public void startSession(Player player, String courseName, long startedAt) {
         Optional<Course> courseOpt = courseCache.getCourse(courseName);
         if (courseOpt.isEmpty() || !courseOpt.get().isReady()) {
             player.sendMessage(Component.text("This course is not available to play.", NamedTextColor.RED));
             return;
         }
+        Course course = courseOpt.get();
 
         // If player is already in a session for the same course, reset them
-        if (isPlaying(player) && getSession(player).courseName().equals(courseName)) {
+        if (isPlaying(player) && getSession(player).courseId() == course.getId()) {
             // If not teleporting, just reset the progress without moving the player
             if (!teleportOnStart) {
                 resetPlayerProgress(player);
@@ -89,42 +104,53 @@ public class ParkourManager {
             initialSessionLocation = player.getLocation();
         }
 
-        ParkourSession session = new ParkourSession(player, courseName, System.currentTimeMillis(), 0, initialSessionLocation);
-        playerSessions.put(player.getUniqueId(), session);
+        ParkourSession session = new ParkourSession(player.getUniqueId(), player.getName(), course.getId(), course.getName(),
+                startedAt, 0, StoredLocation.of(initialSessionLocation), PersonalBest.NO_SPLITS);
+        sessions.put(session);
+        ghosts.startRun(player, course.getId());
 
         uiManager.sendStartMessage(player);
     }
 
     public void endSession(Player player, boolean completed) {
-        endSession(player, completed, 0L);
+        endSession(player, completed, 0L, clock.now());
     }
 
-    public void endSession(Player player, boolean completed, long pausedMillis) {
+    /**
+     * @param pausedNanos AFK time to leave out of the run
+     * @param finishedAt  when the run ended on the {@link RunClock} timeline
+     */
+    public void endSession(Player player, boolean completed, long pausedNanos, long finishedAt) {
         ParkourSession session = getSession(player);
         if (session == null) return;
 
+        long timeTaken = RunClock.toMillis(finishedAt - session.startedAt() - pausedNanos);
+        ghosts.finishRun(player, completed ? timeTaken : -1L);
         if (completed) {
-            long timeTaken = System.currentTimeMillis() - session.startTime() - pausedMillis;
             String formattedTime = formatTime(timeTaken);
 
             player.sendMessage(Component.text("You finished the course in ", NamedTextColor.GOLD)
                     .append(Component.text(formattedTime, NamedTextColor.YELLOW))
                     .append(Component.text("!", NamedTextColor.GOLD)));
 
-            effectsManager.playFinishEffect(player, formattedTime);
+            effectsManager.playFinishEffect(player, session.courseName(), formattedTime);
 
-            playerTimeDAO.savePlayerTime(player, session.courseName(), timeTaken);
+            playerTimeDAO.savePlayerTime(player, session.courseName(), timeTaken, session.splits());
         }
-        playerSessions.remove(player.getUniqueId());
+        sessions.remove(player.getUniqueId());
     }
 
-    public void updateCheckpoint(Player player, int checkpointOrder) {
+    /**
+     * @param splitMillis run time at which the checkpoint was reached, excluding AFK pauses
+     */
+    public void updateCheckpoint(Player player, int checkpointOrder, long splitMillis) {
         ParkourSession currentSession = getSession(player);
         if (currentSession == null) return;
 
-        ParkourSession newSession = currentSession.withLastCheckpoint(checkpointOrder, player.getLocation());
-        playerSessions.put(player.getUniqueId(), newSession);
-        effectsManager.playCheckpointEffect(player);
+        ParkourSession newSession = currentSession.withCheckpoint(checkpointOrder, StoredLocation.of(player.getLocation()),
+                (int) Math.min(Integer.MAX_VALUE, splitMillis));
+        sessions.put(newSession);
+        effectsManager.playCheckpointEffect(player, currentSession.courseName());
     }
 
     public void restartPlayer(Player player) {
@@ -143,37 +169,86 @@ public class ParkourManager {
         ParkourSession session = getSession(player);
         if (session == null) return;
 
-        // Remove the old session
-        playerSessions.remove(player.getUniqueId());
-
-        // Create a new session to reset time and checkpoints
+        // Replace the session to reset time and checkpoints
         // The new session should start from the player's current location, as we are not teleporting
-        ParkourSession newSession = new ParkourSession(player, session.courseName(), System.currentTimeMillis(), 0, player.getLocation());
-        playerSessions.put(player.getUniqueId(), newSession);
+        ParkourSession newSession = new ParkourSession(player.getUniqueId(), player.getName(), session.courseId(), session.courseName(),
+                clock.now(), 0, StoredLocation.of(player.getLocation()), PersonalBest.NO_SPLITS);
+        sessions.put(newSession);
+        ghosts.startRun(player, session.courseId());
     }
 
     public boolean isPlaying(Player player) {
-        return playerSessions.containsKey(player.getUniqueId());
+        return sessions.contains(player.getUniqueId());
     }
 
     public ParkourSession getSession(Player player) {
-        return playerSessions.get(player.getUniqueId());
+        return sessions.get(player.getUniqueId());
+    }
+
+    /**
+     * An immutable snapshot of the sessions, safe to iterate from any thread.
+     */
+    public List<ParkourSession> getActiveSessions() {
+        return sessions.snapshot().sessions();
+    }
+
+    public List<ParkourSession> getSessionsOnCourse(int courseId) {
+        return sessions.snapshot().onCourse(courseId);
+    }
+
+    public SessionRegistry.Snapshot getSessionSnapshot() {
+        return sessions.snapshot();
+    }
+
+    public RunClock getClock() {
+        return clock;
     }
 
-    public Collection<ParkourSession> getActiveSessions() {
-        return playerSessions.values();
+    public static String formatTime(long millis) {
+        return appendTime(new StringBuilder(8), millis).toString();
     }
 
-    private String formatTime(long millis) {
+    /**
+     * Appends {@code mm:ss.hh} to a reusable builder without the parsing and boxing of
+     * {@link String#format}, for timers redrawn several times a second.
+     */
+    public static StringBuilder appendTime(StringBuilder out, long millis) {
+        millis = Math.max(0L, millis);
         long minutes = TimeUnit.MILLISECONDS.toMinutes(millis);
-        long seconds = TimeUnit.MILLISECONDS.toSeconds(millis) % 60;
-        long hundredths = (millis / 10) % 100;
-        return String.format("%02d:%02d.%02d", minutes, seconds, hundredths);
+        int seconds = (int) (TimeUnit.MILLISECONDS.toSeconds(millis) % 60);
+        int hundredths = (int) ((millis / 10) % 100);
+        if (minutes < 10) {
+            out.append('0');
+        }
+        out.append(minutes).append(':');
+        appendTwoDigits(out, seconds).append('.');
+        return appendTwoDigits(out, hundredths);
+    }
+
+    /**
+     * Formats the difference to a reference time as {@code +s.hh} or {@code -s.hh}.
+     */
+    public static String formatDelta(long deltaMillis) {
+        long abs = Math.abs(deltaMillis);
+        StringBuilder out = new StringBuilder(8).append(deltaMillis < 0 ? '-' : '+').append(abs / 1000).append('.');
+        return appendTwoDigits(out, (int) ((abs / 10) % 100)).toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
     }
 
-    public record ParkourSession(Player player, String courseName, long startTime, int lastCheckpoint, Location lastCheckpointLocation) {
-        public ParkourSession withLastCheckpoint(int newCheckpoint, Location newLocation) {
-            return new ParkourSession(player, courseName, startTime, newCheckpoint, newLocation);
+    /**
+     * One player's run. Holds no Bukkit objects, so it can be read off the main thread and never
+     * keeps a player or world alive. {@code startedAt} is on the {@link RunClock} timeline, and
+     * {@code splits} holds the run time in milliseconds at each checkpoint reached, by checkpoint
+     * order; it is copied on every checkpoint rather than changed in place.
+     */
+    public record ParkourSession(UUID playerId, String playerName, int courseId, String courseName, long startedAt,
+                                 int lastCheckpoint, StoredLocation lastCheckpointLocation, int[] splits) {
+        public ParkourSession withCheckpoint(int newCheckpoint, StoredLocation newLocation, int splitMillis) {
+            return new ParkourSession(playerId, playerName, courseId, courseName, startedAt, newCheckpoint, newLocation,
+                    PersonalBest.withSplit(splits, newCheckpoint, splitMillis));
         }
     }
 }
@@ -1,4 +0,0 @@
-package com.oceanami.parkour.manager;
-
-public record PlateInfo(String courseName, String type, int checkpointOrder) {
-}
@@ -0,0 +1,141 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.CuboidRegion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Immutable R-tree over the regions of one world, bulk-loaded with Sort-Tile-Recursive packing so
+ * every node is full and siblings barely overlap. A point query visits O(log n + k) nodes and
+ * writes its hits into a caller-supplied array instead of allocating.
+ */
+final class RegionTree {
+
+    private static final int NODE_CAPACITY = 16;
+
+    private final Node root;
+    private final int size;
+
+    RegionTree(List<RegionTrigger> regions) {
+        this.size = regions.size();
+        List<Node> level = new ArrayList<>();
+        for (List<RegionTrigger> group : tile(regions, entry -> centerX(entry.region()), entry -> centerZ(entry.region()))) {
+            level.add(Node.leaf(group.toArray(new RegionTrigger[0])));
+        }
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            for (List<Node> group : tile(level, node -> (node.minX + node.maxX) / 2, node -> (node.minZ + node.maxZ) / 2)) {
+                parents.add(Node.branch(group.toArray(new Node[0])));
+            }
+            level = parents;
+        }
+        this.root = level.isEmpty() ? null : level.get(0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Collects the regions containing a point into {@code out}, up to its length.
+     *
+     * @return the number of regions written
+     */
+    int query(double x, double y, double z, RegionTrigger[] out) {
+        return root == null ? 0 : query(root, x, y, z, out, 0);
+    }
+
+    private static int query(Node node, double x, double y, double z, RegionTrigger[] out, int found) {
+        if (!node.contains(x, y, z)) {
+            return found;
+        }
+        if (node.entries != null) {
+            for (RegionTrigger entry : node.entries) {
+                if (found < out.length && entry.region().contains(x, y, z)) {
+                    out[found++] = entry;
+                }
+            }
+            return found;
+        }
+        for (Node child : node.children) {
+            found = query(child, x, y, z, out, found);
+        }
+        return found;
+    }
+
+    /**
+     * Sort-Tile-Recursive grouping: sort by x, cut into vertical slices, sort each slice by z and
+     * cut it into groups of at most {@link #NODE_CAPACITY}.
+     */
+    private static <T> List<List<T>> tile(List<T> items, ToDoubleFunction<T> x, ToDoubleFunction<T> z) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingDouble(x));
+        int groupCount = (sorted.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceCount = (int) Math.ceil(Math.sqrt(groupCount));
+        int sliceSize = sliceCount == 0 ? 0 : sliceCount * NODE_CAPACITY;
+
+        List<List<T>> groups = new ArrayList<>(groupCount);
+        for (int sliceStart = 0; sliceStart < sorted.size(); sliceStart += sliceSize) {
+            List<T> slice = new ArrayList<>(sorted.subList(sliceStart, Math.min(sorted.size(), sliceStart + sliceSize)));
+            slice.sort(Comparator.comparingDouble(z));
+            for (int start = 0; start < slice.size(); start += NODE_CAPACITY) {
+                groups.add(slice.subList(start, Math.min(slice.size(), start + NODE_CAPACITY)));
+            }
+        }
+        return groups;
+    }
+
+    private static double centerX(CuboidRegion region) {
+        return (region.minX() + region.maxX() + 1) / 2.0;
+    }
+
+    private static double centerZ(CuboidRegion region) {
+        return (region.minZ() + region.maxZ() + 1) / 2.0;
+    }
+
+    private static final class Node {
+        private double minX = Double.POSITIVE_INFINITY;
+        private double minY = Double.POSITIVE_INFINITY;
+        private double minZ = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY;
+        private double maxY = Double.NEGATIVE_INFINITY;
+        private double maxZ = Double.NEGATIVE_INFINITY;
+        private Node[] children;
+        private RegionTrigger[] entries;
+
+        private static Node leaf(RegionTrigger[] entries) {
+            Node node = new Node();
+            node.entries = entries;
+            for (RegionTrigger entry : entries) {
+                CuboidRegion region = entry.region();
+                node.include(region.minX(), region.minY(), region.minZ(), region.maxX() + 1, region.maxY() + 1, region.maxZ() + 1);
+            }
+            return node;
+        }
+
+        private static Node branch(Node[] children) {
+            Node node = new Node();
+            node.children = children;
+            for (Node child : children) {
+                node.include(child.minX, child.minY, child.minZ, child.maxX, child.maxY, child.maxZ);
+            }
+            return node;
+        }
+
+        private void include(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            this.minX = Math.min(this.minX, minX);
+            this.minY = Math.min(this.minY, minY);
+            this.minZ = Math.min(this.minZ, minZ);
+            this.maxX = Math.max(this.maxX, maxX);
+            this.maxY = Math.max(this.maxY, maxY);
+            this.maxZ = Math.max(this.maxZ, maxZ);
+        }
+
+        private boolean contains(double x, double y, double z) {
+            return x >= minX && x < maxX && y >= minY && y < maxY && z >= minZ && z < maxZ;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.CuboidRegion;
+
+/**
+ * A region together with the trigger it fires when a player enters it.
+ */
+public record RegionTrigger(CuboidRegion region, CourseTrigger trigger) {
+}
@@ -0,0 +1,71 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.ParkourPlugin;
+import org.bukkit.Bukkit;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timeline run times are measured on, in nanoseconds. In real mode it follows
+ * {@link System#nanoTime}, which never jumps when the wall clock is adjusted. In tick mode it
+ * follows the server tick counter, so lag slows the clock together with the game and times do
+ * not depend on TPS.
+ * <p>
+ * Clients send one position per tick, so a trigger crossed part way through a move can be dated
+ * back to the moment of crossing with {@link #at(double)}.
+ */
+public final class RunClock {
+
+    public static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    public enum Mode {
+        REAL,
+        TICKS
+    }
+
+    private final Mode mode;
+
+    public RunClock(ParkourPlugin plugin) {
+        String configured = plugin.getConfig().getString("timing.mode", "real");
+        Mode parsed;
+        try {
+            parsed = Mode.valueOf(configured.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Invalid timing.mode '" + configured + "' in config.yml, using real time.");
+            parsed = Mode.REAL;
+        }
+        this.mode = parsed;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * The current time. Only differences between two readings are meaningful. Main thread only in
+     * tick mode.
+     */
+    public long now() {
+        return mode == Mode.TICKS ? Bukkit.getCurrentTick() * TICK_NANOS : System.nanoTime();
+    }
+
+    /**
+     * The time at which a move that is being handled now had covered {@code fraction} of its
+     * distance, assuming the move took one client tick.
+     *
+     * @param fraction between 0 (the previous position) and 1 (the current one)
+     */
+    public long at(double fraction) {
+        double clamped = Math.max(0.0, Math.min(1.0, fraction));
+        return now() - (long) ((1.0 - clamped) * TICK_NANOS);
+    }
+
+    public static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public static long fromMillis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
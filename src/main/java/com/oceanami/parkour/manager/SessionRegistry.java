@@ -0,0 +1,68 @@
+package com.oceanami.parkour.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Active parkour sessions, safe to read from any thread. Sessions are keyed by player UUID and hold
+ * no Bukkit objects, so a stale one never pins a player or world. Every change publishes a new
+ * immutable {@link Snapshot} with a per-course index, so readers iterate without locking and never
+ * see a half-applied change. Changes come from the main thread and are rare compared to reads.
+ * <p>
+ * Lives as long as the plugin, so sessions survive a configuration reload.
+ */
+public class SessionRegistry {
+
+    /**
+     * Every session at one moment, plus the same sessions grouped by course id.
+     */
+    public record Snapshot(List<ParkourManager.ParkourSession> sessions,
+                           Map<Integer, List<ParkourManager.ParkourSession>> byCourse) {
+        static final Snapshot EMPTY = new Snapshot(List.of(), Map.of());
+
+        public List<ParkourManager.ParkourSession> onCourse(int courseId) {
+            return byCourse.getOrDefault(courseId, List.of());
+        }
+    }
+
+    private final Map<UUID, ParkourManager.ParkourSession> sessions = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public ParkourManager.ParkourSession get(UUID playerId) {
+        return sessions.get(playerId);
+    }
+
+    public boolean contains(UUID playerId) {
+        return sessions.containsKey(playerId);
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    synchronized void put(ParkourManager.ParkourSession session) {
+        sessions.put(session.playerId(), session);
+        publish();
+    }
+
+    synchronized void remove(UUID playerId) {
+        if (sessions.remove(playerId) != null) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        List<ParkourManager.ParkourSession> all = List.copyOf(sessions.values());
+        Map<Integer, List<ParkourManager.ParkourSession>> grouped = new HashMap<>();
+        for (ParkourManager.ParkourSession session : all) {
+            grouped.computeIfAbsent(session.courseId(), id -> new ArrayList<>()).add(session);
+        }
+        grouped.replaceAll((id, list) -> Collections.unmodifiableList(list));
+        snapshot = new Snapshot(all, Collections.unmodifiableMap(grouped));
+    }
+}
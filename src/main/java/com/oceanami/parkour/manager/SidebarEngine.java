@@ -0,0 +1,95 @@
+package com.oceanami.parkour.manager;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Criteria;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Renders the session timer sidebar. Every runner on a course shares one scoreboard, and a single
+ * {@link #render} pass computes each session's time once and only touches lines whose value
+ * changed, so the cost grows with the number of runners rather than its square. Main thread only.
+ */
+public class SidebarEngine {
+
+    private final Map<Integer, CourseBoard> boards = new HashMap<>();
+
+    /**
+     * Shows the sidebar of the player's course.
+     */
+    public void show(Player player, int courseId, String courseName) {
+        player.setScoreboard(boards.computeIfAbsent(courseId, id -> new CourseBoard(courseName)).scoreboard);
+    }
+
+    public void hide(Player player) {
+        player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+    }
+
+    /**
+     * Updates every course board from the active sessions and drops boards nobody runs any more.
+     *
+     * @param elapsedMillis time to show for a session
+     */
+    public void render(Collection<ParkourManager.ParkourSession> sessions, ToLongFunction<ParkourManager.ParkourSession> elapsedMillis) {
+        for (ParkourManager.ParkourSession session : sessions) {
+            CourseBoard board = boards.get(session.courseId());
+            if (board != null) {
+                board.set(session.playerName(), (int) (elapsedMillis.applyAsLong(session) / 1000));
+            }
+        }
+        boards.values().removeIf(CourseBoard::finishFrame);
+    }
+
+    private static final class CourseBoard {
+        private final Scoreboard scoreboard;
+        private final Objective objective;
+        // Last value sent per line, and the lines seen during the current frame
+        private final Map<String, Integer> shown = new HashMap<>();
+        private final Set<String> seen = new HashSet<>();
+
+        private CourseBoard(String courseName) {
+            this.scoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
+            this.objective = scoreboard.registerNewObjective("parkour_time", Criteria.DUMMY,
+                    Component.text(courseName, NamedTextColor.YELLOW, TextDecoration.BOLD));
+            objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+        }
+
+        private void set(String entry, int seconds) {
+            seen.add(entry);
+            Integer previous = shown.put(entry, seconds);
+            if (previous == null || previous != seconds) {
+                objective.getScore(entry).setScore(seconds);
+            }
+        }
+
+        /**
+         * Removes lines of runners that are gone.
+         *
+         * @return whether the board is now empty
+         */
+        private boolean finishFrame() {
+            for (Iterator<String> it = shown.keySet().iterator(); it.hasNext(); ) {
+                String entry = it.next();
+                if (!seen.contains(entry)) {
+                    scoreboard.resetScores(entry);
+                    it.remove();
+                }
+            }
+            seen.clear();
+            return shown.isEmpty();
+        }
+    }
+}
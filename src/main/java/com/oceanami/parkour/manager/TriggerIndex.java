@@ -0,0 +1,236 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.TriggerType;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable trigger lookup table built by {@link LocationCache}. Each world gets an open-addressing
+ * map from block coordinates packed into a {@code long} to the plate there, so a lookup neither
+ * allocates nor boxes, a {@link RegionTree} of its cuboid regions, and a {@link ChunkMask} of the
+ * chunks holding any plate or start region. When triggers change, a new index is swapped in that
+ * rebuilds only the affected worlds and shares the tables of all others.
+ */
+public final class TriggerIndex {
+
+    static final TriggerIndex EMPTY = new TriggerIndex(new UUID[0], new WorldPlates[0]);
+
+    private final UUID[] worldIds;
+    private final WorldPlates[] worlds;
+
+    private TriggerIndex(UUID[] worldIds, WorldPlates[] worlds) {
+        this.worldIds = worldIds;
+        this.worlds = worlds;
+    }
+
+    /**
+     * Packs block coordinates into one key: 26 bits each for x and z, 12 bits for y.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Returns the plate at the given block, or {@code null} if there is none.
+     */
+    public CourseTrigger get(World world, int x, int y, int z) {
+        return get(world.getUID(), x, y, z);
+    }
+
+    CourseTrigger get(UUID worldId, int x, int y, int z) {
+        WorldPlates plates = find(worldId);
+        return plates != null ? plates.get(pack(x, y, z)) : null;
+    }
+
+    /**
+     * Collects the regions containing a point into {@code out}.
+     *
+     * @return the number of regions written, at most {@code out.length}
+     */
+    public int regionsAt(World world, double x, double y, double z, RegionTrigger[] out) {
+        return regionsAt(world.getUID(), x, y, z, out);
+    }
+
+    int regionsAt(UUID worldId, double x, double y, double z, RegionTrigger[] out) {
+        WorldPlates plates = find(worldId);
+        return plates != null ? plates.regions.query(x, y, z, out) : 0;
+    }
+
+    /**
+     * Whether any trigger lies in the given chunk, so movement elsewhere can be ignored.
+     */
+    public boolean hasTriggersInChunk(World world, int chunkX, int chunkZ) {
+        return hasTriggersInChunk(world.getUID(), chunkX, chunkZ);
+    }
+
+    boolean hasTriggersInChunk(UUID worldId, int chunkX, int chunkZ) {
+        WorldPlates plates = find(worldId);
+        return plates != null && plates.chunks.contains(chunkX, chunkZ);
+    }
+
+    private WorldPlates find(UUID worldId) {
+        // Only worlds with plates are listed, which is a handful, so a scan beats hashing the UUID
+        for (int i = 0; i < worldIds.length; i++) {
+            if (worldIds[i].equals(worldId)) {
+                return worlds[i];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (WorldPlates world : worlds) {
+            size += world.size;
+        }
+        return size;
+    }
+
+    public int regionCount() {
+        int count = 0;
+        for (WorldPlates world : worlds) {
+            count += world.regions.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns a copy of this index in which the given worlds are replaced by their tables in
+     * {@code rebuilt}. A replaced world that {@code rebuilt} does not contain is dropped.
+     */
+    TriggerIndex replaceWorlds(Collection<UUID> replacedIds, TriggerIndex rebuilt) {
+        List<UUID> ids = new ArrayList<>(worldIds.length + rebuilt.worldIds.length);
+        List<WorldPlates> tables = new ArrayList<>(ids.size());
+        for (int i = 0; i < worldIds.length; i++) {
+            if (!replacedIds.contains(worldIds[i])) {
+                ids.add(worldIds[i]);
+                tables.add(worlds[i]);
+            }
+        }
+        for (int i = 0; i < rebuilt.worldIds.length; i++) {
+            ids.add(rebuilt.worldIds[i]);
+            tables.add(rebuilt.worlds[i]);
+        }
+        return new TriggerIndex(ids.toArray(new UUID[0]), tables.toArray(new WorldPlates[0]));
+    }
+
+    private static int unpackX(long key) {
+        return (int) (key >> 38);
+    }
+
+    private static int unpackZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+        private final Map<UUID, List<Map.Entry<Long, CourseTrigger>>> plates = new HashMap<>();
+        private final Map<UUID, List<RegionTrigger>> regions = new HashMap<>();
+
+        Builder add(UUID worldId, int x, int y, int z, CourseTrigger trigger) {
+            plates.computeIfAbsent(worldId, id -> new ArrayList<>()).add(Map.entry(pack(x, y, z), trigger));
+            return this;
+        }
+
+        Builder addRegion(UUID worldId, RegionTrigger region) {
+            regions.computeIfAbsent(worldId, id -> new ArrayList<>()).add(region);
+            return this;
+        }
+
+        TriggerIndex build() {
+            Set<UUID> ids = new HashSet<>(plates.keySet());
+            ids.addAll(regions.keySet());
+            UUID[] worldIds = new UUID[ids.size()];
+            WorldPlates[] worlds = new WorldPlates[ids.size()];
+            int i = 0;
+            for (UUID worldId : ids) {
+                worldIds[i] = worldId;
+                worlds[i] = new WorldPlates(plates.getOrDefault(worldId, List.of()), regions.getOrDefault(worldId, List.of()));
+                i++;
+            }
+            return new TriggerIndex(worldIds, worlds);
+        }
+    }
+
+    /**
+     * Linear-probing table of packed block keys. Capacity is a power of two at most half full, and a
+     * {@code null} value marks an empty slot.
+     */
+    private static final class WorldPlates {
+        private final long[] keys;
+        private final CourseTrigger[] values;
+        private final int mask;
+        private final ChunkMask chunks;
+        private final RegionTree regions;
+        private int size;
+
+        private WorldPlates(List<Map.Entry<Long, CourseTrigger>> entries, List<RegionTrigger> regions) {
+            int capacity = Integer.highestOneBit(Math.max(4, entries.size() * 2 - 1)) << 1;
+            this.keys = new long[capacity];
+            this.values = new CourseTrigger[capacity];
+            this.mask = capacity - 1;
+            Set<Long> chunkKeys = new HashSet<>();
+            for (Map.Entry<Long, CourseTrigger> entry : entries) {
+                put(entry.getKey(), entry.getValue());
+                chunkKeys.add(ChunkMask.key(unpackX(entry.getKey()) >> 4, unpackZ(entry.getKey()) >> 4));
+            }
+            // Other region types only matter to players already in a session, who skip the mask
+            for (RegionTrigger trigger : regions) {
+                CuboidRegion region = trigger.region();
+                if (region.type() == TriggerType.START) {
+                    for (int cx = region.minX() >> 4; cx <= region.maxX() >> 4; cx++) {
+                        for (int cz = region.minZ() >> 4; cz <= region.maxZ() >> 4; cz++) {
+                            chunkKeys.add(ChunkMask.key(cx, cz));
+                        }
+                    }
+                }
+            }
+            this.chunks = new ChunkMask(chunkKeys);
+            this.regions = new RegionTree(regions);
+        }
+
+        private void put(long key, CourseTrigger value) {
+            int slot = slot(key);
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private CourseTrigger get(long key) {
+            int slot = slot(key);
+            CourseTrigger value;
+            while ((value = values[slot]) != null) {
+                if (keys[slot] == key) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private int slot(long key) {
+            // Murmur3 finalizer so neighbouring blocks spread across the table
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return (int) key & mask;
+        }
+    }
+}
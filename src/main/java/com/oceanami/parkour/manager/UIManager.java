@@ -1,14 +1,21 @@
 package com.oceanami.parkour.manager;
 
 import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.scheduler.TimingWheel;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 public class UIManager {
 
     private final ParkourPlugin plugin;
+    // Pending action bar clears, one per player, so a quick restart does not clear the new message early
+    private final Map<UUID, TimingWheel.Timeout> startMessageClears = new HashMap<>();
 
     public UIManager(ParkourPlugin plugin) {
         this.plugin = plugin;
@@ -22,23 +29,18 @@ public class UIManager {
             Component component = LegacyComponentSerializer.legacyAmpersand().deserialize(message);
             player.sendActionBar(component);
 
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    player.sendActionBar(Component.text("")); // Clear the action bar
+            UUID playerId = player.getUniqueId();
+            TimingWheel.Timeout previous = startMessageClears.remove(playerId);
+            if (previous != null) {
+                previous.cancel();
+            }
+            startMessageClears.put(playerId, plugin.getTimingWheel().schedule(duration * 20L, () -> { // duration in seconds
+                startMessageClears.remove(playerId);
+                Player online = Bukkit.getPlayer(playerId);
+                if (online != null) {
+                    online.sendActionBar(Component.text("")); // Clear the action bar
                 }
-            }.runTaskLater(plugin, duration * 20L); // duration in seconds
+            }));
         }
     }
-
-    public void updateTime(Player player, long millis) {
-        // This method no longer controls the action bar timer.
-    }
-
-    private String formatTime(long millis) {
-        long minutes = (millis / 1000) / 60;
-        long seconds = (millis / 1000) % 60;
-        long hundredths = (millis / 10) % 100;
-        return String.format("%02d:%02d.%02d", minutes, seconds, hundredths);
-    }
 }
@@ -5,7 +5,7 @@ import java.util.Objects;
 public class Course {
     private final int id;
     private final String name;
-    private boolean ready;
+    private final boolean ready;
 
     public Course(int id, String name, boolean ready) {
         this.id = id;
@@ -25,8 +25,8 @@ public class Course {
         return ready;
     }
 
-    public void setReady(boolean ready) {
-        this.ready = ready;
+    public Course withReady(boolean ready) {
+        return new Course(id, name, ready);
     }
 
     @Override
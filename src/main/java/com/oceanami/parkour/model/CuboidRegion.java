@@ -0,0 +1,27 @@
+package com.oceanami.parkour.model;
+
+/**
+ * A box of whole blocks that acts as a course trigger, e.g. a finish line, a checkpoint gate or
+ * a fail zone. Bounds are inclusive block coordinates.
+ */
+public record CuboidRegion(int id, TriggerType type, int checkpointOrder, String worldName,
+                           int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+
+    public static CuboidRegion between(int id, TriggerType type, int checkpointOrder, StoredLocation a, StoredLocation b) {
+        return new CuboidRegion(id, type, checkpointOrder, a.worldName(),
+                Math.min(a.blockX(), b.blockX()), Math.min(a.blockY(), b.blockY()), Math.min(a.blockZ(), b.blockZ()),
+                Math.max(a.blockX(), b.blockX()), Math.max(a.blockY(), b.blockY()), Math.max(a.blockZ(), b.blockZ()));
+    }
+
+    public CuboidRegion withId(int id) {
+        return new CuboidRegion(id, type, checkpointOrder, worldName, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    public boolean contains(double x, double y, double z) {
+        return x >= minX && x < maxX + 1 && y >= minY && y < maxY + 1 && z >= minZ && z < maxZ + 1;
+    }
+
+    public long volume() {
+        return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+    }
+}
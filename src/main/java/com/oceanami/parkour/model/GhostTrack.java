@@ -0,0 +1,111 @@
+package com.oceanami.parkour.model;
+
+import org.bukkit.Location;
+
+import java.util.UUID;
+
+/**
+ * A recorded run, one frame per server tick. Positions are quantized to 1/32 block and angles to
+ * 1/256 of a turn; each frame stores the difference to the previous one as zigzag varints for the
+ * coordinates and one wrapping byte per angle, so a typical frame takes five to eight bytes.
+ */
+public record GhostTrack(UUID playerId, String playerName, int courseId, String worldName, long timeMillis,
+                         int frames, byte[] data) {
+
+    public static final int POSITION_SCALE = 32;
+    /** Largest encoded frame: three five-byte varints and two angle bytes. */
+    public static final int MAX_FRAME_BYTES = 3 * 5 + 2;
+
+    public static int quantize(double coordinate) {
+        return (int) Math.round(coordinate * POSITION_SCALE);
+    }
+
+    public static byte quantizeAngle(float degrees) {
+        return (byte) Math.round(degrees * 256.0f / 360.0f);
+    }
+
+    /**
+     * Writes a zigzag varint and returns the offset after it.
+     */
+    public static int writeVarInt(byte[] out, int offset, int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out[offset++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out[offset++] = (byte) zigzag;
+        return offset;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Decodes the frames in order without allocating.
+     */
+    public final class Cursor {
+        private int offset;
+        private int frame;
+        private int x;
+        private int y;
+        private int z;
+        private byte yaw;
+        private byte pitch;
+        private boolean pitchChanged;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves to the next frame.
+         *
+         * @return false once every frame has been read
+         */
+        public boolean next() {
+            if (frame >= frames || offset >= data.length) {
+                return false;
+            }
+            x += readVarInt();
+            y += readVarInt();
+            z += readVarInt();
+            yaw += data[offset++];
+            byte pitchDelta = data[offset++];
+            pitch += pitchDelta;
+            pitchChanged = pitchDelta != 0;
+            frame++;
+            return true;
+        }
+
+        /**
+         * Copies the current frame into a reused location; the world is left untouched.
+         */
+        public void apply(Location target) {
+            target.setX((double) x / POSITION_SCALE);
+            target.setY((double) y / POSITION_SCALE);
+            target.setZ((double) z / POSITION_SCALE);
+            target.setYaw(yaw * 360.0f / 256.0f);
+            target.setPitch(pitch());
+        }
+
+        public float pitch() {
+            return pitch * 360.0f / 256.0f;
+        }
+
+        public boolean isPitchChanged() {
+            return pitchChanged;
+        }
+
+        private int readVarInt() {
+            int result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0 && shift < 35);
+            return (result >>> 1) ^ -(result & 1);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.oceanami.parkour.model;
+
+import java.util.UUID;
+
+public record LeaderboardEntry(UUID playerId, String playerName, long timeMillis) {
+}
@@ -0,0 +1,51 @@
+package com.oceanami.parkour.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A player's best time on a course together with the split times of that run. Splits are the run
+ * time in milliseconds at which each checkpoint was reached, indexed by checkpoint order, with
+ * {@link #NO_SPLIT} for checkpoints the run skipped. Split arrays are never modified once shared.
+ */
+public record PersonalBest(long timeMillis, int[] splits) {
+
+    public static final int NO_SPLIT = -1;
+    public static final int[] NO_SPLITS = new int[0];
+
+    public int split(int checkpointOrder) {
+        return checkpointOrder >= 0 && checkpointOrder < splits.length ? splits[checkpointOrder] : NO_SPLIT;
+    }
+
+    public static PersonalBest faster(PersonalBest a, PersonalBest b) {
+        return b.timeMillis() < a.timeMillis() ? b : a;
+    }
+
+    /**
+     * Returns a copy of {@code splits} with one more split, grown to fit the checkpoint order.
+     */
+    public static int[] withSplit(int[] splits, int checkpointOrder, int splitMillis) {
+        int[] copy = Arrays.copyOf(splits, Math.max(splits.length, checkpointOrder + 1));
+        Arrays.fill(copy, splits.length, copy.length, NO_SPLIT);
+        copy[checkpointOrder] = splitMillis;
+        return copy;
+    }
+
+    /**
+     * Packs splits into four bytes each for the {@code splits} column.
+     */
+    public static byte[] encodeSplits(int[] splits) {
+        ByteBuffer buffer = ByteBuffer.allocate(splits.length * Integer.BYTES);
+        buffer.asIntBuffer().put(splits);
+        return buffer.array();
+    }
+
+    public static int[] decodeSplits(byte[] data) {
+        if (data == null || data.length < Integer.BYTES) {
+            return NO_SPLITS;
+        }
+        int[] splits = new int[data.length / Integer.BYTES];
+        ByteBuffer.wrap(data).asIntBuffer().get(splits);
+        return splits;
+    }
+}
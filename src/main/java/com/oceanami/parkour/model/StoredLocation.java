@@ -0,0 +1,38 @@
+package com.oceanami.parkour.model;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Optional;
+
+/**
+ * A location that refers to its world by name only, so it can be cached before the world is
+ * loaded and never keeps an unloaded {@link World} alive.
+ */
+public record StoredLocation(String worldName, double x, double y, double z, float yaw, float pitch) {
+
+    public static StoredLocation of(Location loc) {
+        return new StoredLocation(loc.getWorld().getName(), loc.getX(), loc.getY(), loc.getZ(), loc.getYaw(), loc.getPitch());
+    }
+
+    public int blockX() {
+        return (int) Math.floor(x);
+    }
+
+    public int blockY() {
+        return (int) Math.floor(y);
+    }
+
+    public int blockZ() {
+        return (int) Math.floor(z);
+    }
+
+    /**
+     * Creates a fresh Bukkit location, or returns empty while the world is not loaded.
+     */
+    public Optional<Location> resolve() {
+        World world = Bukkit.getWorld(worldName);
+        return world == null ? Optional.empty() : Optional.of(new Location(world, x, y, z, yaw, pitch));
+    }
+}
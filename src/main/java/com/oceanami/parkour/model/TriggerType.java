@@ -0,0 +1,14 @@
+package com.oceanami.parkour.model;
+
+/**
+ * What happens when a player steps on a plate or enters a region of a course.
+ */
+public enum TriggerType {
+    START,
+    CHECKPOINT,
+    FINISH,
+    /**
+     * Sends the player back to their last checkpoint, e.g. lava or the void.
+     */
+    FAIL
+}
@@ -0,0 +1,87 @@
+package com.oceanami.parkour.scheduler;
+
+import com.oceanami.parkour.ParkourPlugin;
+import com.oceanami.parkour.manager.ParkourManager;
+import com.oceanami.parkour.manager.RunClock;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Shows each runner their session time in the action bar. Iterates the immutable session snapshot,
+ * so a send that ends a session cannot disturb the pass; all sends of one refresh go out together.
+ * Times are formatted into one reused builder instead of through {@link String#format}.
+ */
+public class ActionBarTimer extends BukkitRunnable {
+
+    private final ParkourPlugin plugin;
+    private final NamespacedKey hiddenKey;
+    private final long refreshTicks;
+    private final long startMessageNanos;
+    private final StringBuilder text = new StringBuilder(16);
+    private boolean scheduled;
+
+    public ActionBarTimer(ParkourPlugin plugin) {
+        this.plugin = plugin;
+        this.hiddenKey = new NamespacedKey(plugin, "timer_hidden");
+        this.refreshTicks = Math.max(1L, plugin.getConfig().getLong("action-bar-timer.refresh-ticks", 2L));
+        // Leave the action bar to the start message while it is shown
+        this.startMessageNanos = plugin.getConfig().getBoolean("start-message.enabled", true)
+                ? RunClock.fromMillis(plugin.getConfig().getInt("start-message.duration", 3) * 1000L)
+                : 0L;
+    }
+
+    public void start() {
+        if (plugin.getConfig().getBoolean("action-bar-timer.enabled", true)) {
+            runTaskTimer(plugin, refreshTicks, refreshTicks);
+            scheduled = true;
+        }
+    }
+
+    public void stop() {
+        if (scheduled) {
+            cancel();
+            scheduled = false;
+        }
+    }
+
+    /**
+     * Hides or shows the timer for a player. The choice is stored on the player and survives restarts.
+     *
+     * @return whether the timer is now shown
+     */
+    public boolean toggle(Player player) {
+        if (isHidden(player)) {
+            player.getPersistentDataContainer().remove(hiddenKey);
+            return true;
+        }
+        player.getPersistentDataContainer().set(hiddenKey, PersistentDataType.BYTE, (byte) 1);
+        player.sendActionBar(Component.empty());
+        return false;
+    }
+
+    private boolean isHidden(Player player) {
+        return player.getPersistentDataContainer().has(hiddenKey, PersistentDataType.BYTE);
+    }
+
+    @Override
+    public void run() {
+        long now = plugin.getParkourManager().getClock().now();
+        for (ParkourManager.ParkourSession session : plugin.getParkourManager().getActiveSessions()) {
+            if (now - session.startedAt() < startMessageNanos) {
+                continue;
+            }
+            Player player = Bukkit.getPlayer(session.playerId());
+            if (player == null || isHidden(player)) {
+                continue;
+            }
+            text.setLength(0);
+            ParkourManager.appendTime(text, plugin.getPlayerListener().getElapsedMillis(session, now));
+            player.sendActionBar(Component.text(text.toString(), NamedTextColor.YELLOW));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.oceanami.parkour.scheduler;
+
+/**
+ * Hierarchical timing wheel for per-player deadlines such as AFK checks, cooldowns and messages
+ * that clear themselves. One task calls {@link #tick()} every server tick; scheduling, cancelling
+ * and expiring a timeout are O(1), and a tick only touches the slot that is due.
+ * <p>
+ * Four levels of 64 slots cover 2^24 ticks (about 9.7 days); a timeout on a higher level moves
+ * down a level each time its slot comes round, until it lands on the bottom level and runs. Main
+ * thread only.
+ */
+public final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private static final int LINKED = 0;
+    private static final int EXPIRING = 1;
+    private static final int DONE = 2;
+
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private long now;
+    private int size;
+
+    /**
+     * Runs {@code task} on the main thread after {@code delayTicks}, at least one tick from now.
+     */
+    public Timeout schedule(long delayTicks, Runnable task) {
+        Timeout timeout = new Timeout(now + Math.max(1L, delayTicks), task);
+        link(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel by one tick and runs every timeout that is due.
+     */
+    public void tick() {
+        now++;
+        // Move timeouts of higher-level slots that just came round down towards the bottom level
+        for (int level = 1; level < LEVELS; level++) {
+            if ((now & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            Timeout timeout = detach(level, slotOf(now, level));
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                link(timeout);
+                timeout = next;
+            }
+        }
+
+        Timeout timeout = detach(0, slotOf(now, 0));
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if (timeout.state == EXPIRING) {
+                if (timeout.deadline > now) {
+                    // Was beyond the wheel's range when scheduled
+                    link(timeout);
+                } else {
+                    timeout.state = DONE;
+                    size--;
+                    timeout.task.run();
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void link(Timeout timeout) {
+        long delta = timeout.deadline - now;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = slotOf(timeout.deadline, level);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.state = LINKED;
+        timeout.prev = null;
+        timeout.next = slots[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        slots[level][slot] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * Empties a slot and returns its former list, marked as expiring so a cancel from a task that
+     * runs meanwhile still takes effect.
+     */
+    private Timeout detach(int level, int slot) {
+        Timeout head = slots[level][slot];
+        slots[level][slot] = null;
+        for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.state = EXPIRING;
+            timeout.prev = null;
+        }
+        return head;
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    /**
+     * A scheduled task that has not run yet can be cancelled.
+     */
+    public final class Timeout {
+        private final long deadline;
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+        private int level;
+        private int slot;
+        private int state;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * @return whether the task was still pending and will now not run
+         */
+        public boolean cancel() {
+            if (state == DONE) {
+                return false;
+            }
+            if (state == LINKED) {
+                unlink(this);
+            }
+            // An expiring timeout stays in the detached list, which skips it once marked done
+            state = DONE;
+            size--;
+            return true;
+        }
+
+        public boolean isPending() {
+            return state != DONE;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.StoredLocation;
+import com.oceanami.parkour.model.TriggerType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static CourseSnapshot sample() {
+        CourseSnapshot.CourseEntry lobby = new CourseSnapshot.CourseEntry(1, "Lobby", true, 7L, List.of(
+                new CourseSnapshot.LocationEntry("START", 0, new StoredLocation("world", 0.5, 64.0, -0.5, 90.0f, -10.0f)),
+                new CourseSnapshot.LocationEntry("CHECKPOINT", 1, new StoredLocation("world", -30_000_000.5, -64.0, 1e-9, -180.0f, 90.0f)),
+                new CourseSnapshot.LocationEntry("FINISH", 0, new StoredLocation("world_nether", 12.25, 319.0, 8.75, 0.0f, 0.0f))
+        ), List.of(
+                new CuboidRegion(3, TriggerType.FAIL, 0, "world", -10, -64, -10, 10, -60, 10),
+                new CuboidRegion(4, TriggerType.CHECKPOINT, 2, "world", Integer.MIN_VALUE, 0, 0, Integer.MAX_VALUE, 1, 1)
+        ));
+        CourseSnapshot.CourseEntry unfinished = new CourseSnapshot.CourseEntry(2, "Sprung über den Fluss ⛰", false,
+                Long.MAX_VALUE, List.of(), List.of());
+        return new CourseSnapshot(List.of(lobby, unfinished));
+    }
+
+    /**
+     * Appends a valid checksum to a hand-made body.
+     */
+    private static ByteBuffer withChecksum(ByteBuffer body) {
+        body.flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        ByteBuffer file = ByteBuffer.allocate(body.remaining() + Long.BYTES);
+        file.put(body).putLong(crc.getValue()).flip();
+        return file;
+    }
+
+    @Test
+    void roundTripsEveryField() throws IOException {
+        CourseSnapshot snapshot = sample();
+        CourseSnapshot decoded = CourseSnapshot.decode(ByteBuffer.wrap(snapshot.encode()));
+        assertEquals(snapshot.getCourses(), decoded.getCourses());
+    }
+
+    @Test
+    void roundTripsAnEmptySnapshot() throws IOException {
+        CourseSnapshot decoded = CourseSnapshot.decode(ByteBuffer.wrap(new CourseSnapshot(List.of()).encode()));
+        assertTrue(decoded.getCourses().isEmpty());
+    }
+
+    @Test
+    void readsFromDiskAndLeavesTheFileReplaceable() throws IOException {
+        Path file = directory.resolve("courses.snapshot");
+        Files.write(file, sample().encode());
+        assertEquals(sample().getCourses(), CourseSnapshot.read(file).getCourses());
+
+        // Saving replaces the snapshot by moving a temporary file over it
+        Path replacement = directory.resolve("courses.snapshot.tmp");
+        Files.write(replacement, new CourseSnapshot(List.of()).encode());
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        assertTrue(CourseSnapshot.read(file).getCourses().isEmpty());
+    }
+
+    @Test
+    void rejectsAnyFlippedByte() {
+        byte[] encoded = sample().encode();
+        for (int i = 0; i < encoded.length; i++) {
+            byte[] corrupted = encoded.clone();
+            corrupted[i] ^= 0x01;
+            assertThrows(IOException.class, () -> CourseSnapshot.decode(ByteBuffer.wrap(corrupted)), "byte " + i);
+        }
+    }
+
+    @Test
+    void rejectsTruncatedFiles() {
+        byte[] encoded = sample().encode();
+        for (int length : new int[]{0, 1, 19, encoded.length - 1}) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows(IOException.class, () -> CourseSnapshot.decode(ByteBuffer.wrap(truncated)), "length " + length);
+        }
+    }
+
+    @Test
+    void rejectsABodyShorterThanItsCountsClaim() {
+        ByteBuffer body = ByteBuffer.allocate(16).putInt(0x504B534E).putInt(2).putInt(1).putInt(5);
+        assertThrows(IOException.class, () -> CourseSnapshot.decode(withChecksum(body)));
+    }
+
+    @Test
+    void rejectsOtherFilesAndVersions() {
+        ByteBuffer wrongMagic = ByteBuffer.allocate(12).putInt(0x12345678).putInt(2).putInt(0);
+        assertThrows(IOException.class, () -> CourseSnapshot.decode(withChecksum(wrongMagic)));
+
+        ByteBuffer newerVersion = ByteBuffer.allocate(12).putInt(0x504B534E).putInt(3).putInt(0);
+        assertThrows(IOException.class, () -> CourseSnapshot.decode(withChecksum(newerVersion)));
+    }
+
+    @Test
+    void rejectsUnknownTriggerTypes() {
+        CourseSnapshot.CourseEntry course = new CourseSnapshot.CourseEntry(1, "a", true, 0L, List.of(),
+                List.of(new CuboidRegion(1, TriggerType.FAIL, 0, "world", 0, 0, 0, 1, 1, 1)));
+        byte[] encoded = new CourseSnapshot(List.of(course)).encode();
+        // Rename FAIL to a type this version does not know, keeping the length
+        String body = new String(encoded, 0, encoded.length - Long.BYTES, StandardCharsets.ISO_8859_1);
+        ByteBuffer renamed = ByteBuffer.wrap(body.replace("FAIL", "LAVA").getBytes(StandardCharsets.ISO_8859_1));
+        renamed.position(renamed.limit());
+        assertThrows(IOException.class, () -> CourseSnapshot.decode(withChecksum(renamed)));
+    }
+}
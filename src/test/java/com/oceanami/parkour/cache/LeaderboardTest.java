@@ -0,0 +1,125 @@
+package com.oceanami.parkour.cache;
+
+import com.oceanami.parkour.model.LeaderboardEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardTest {
+
+    private final Leaderboard leaderboard = new Leaderboard();
+
+    private static UUID player(int n) {
+        return new UUID(0L, n);
+    }
+
+    private static List<UUID> players(List<LeaderboardEntry> entries) {
+        return entries.stream().map(LeaderboardEntry::playerId).toList();
+    }
+
+    @Test
+    void emptyLeaderboard() {
+        assertEquals(0, leaderboard.size());
+        assertEquals(0, leaderboard.getRank(player(1)));
+        assertTrue(leaderboard.getTop(10).isEmpty());
+        assertTrue(leaderboard.getAround(player(1), 2).isEmpty());
+    }
+
+    @Test
+    void keepsOnlyEachPlayersFastestTime() {
+        assertTrue(leaderboard.submit(player(1), "a", 5000));
+        assertFalse(leaderboard.submit(player(1), "a", 5000));
+        assertFalse(leaderboard.submit(player(1), "a", 6000));
+        assertTrue(leaderboard.submit(player(1), "a", 4000));
+
+        assertEquals(1, leaderboard.size());
+        assertEquals(List.of(new LeaderboardEntry(player(1), "a", 4000)), leaderboard.getTop(10));
+    }
+
+    @Test
+    void improvedTimeMovesThePlayerUp() {
+        leaderboard.submit(player(1), "a", 1000);
+        leaderboard.submit(player(2), "b", 2000);
+        leaderboard.submit(player(3), "c", 3000);
+        assertEquals(3, leaderboard.getRank(player(3)));
+
+        leaderboard.submit(player(3), "c", 500);
+        assertEquals(1, leaderboard.getRank(player(3)));
+        assertEquals(2, leaderboard.getRank(player(1)));
+        assertEquals(List.of(player(3), player(1), player(2)), players(leaderboard.getTop(10)));
+    }
+
+    @Test
+    void equalTimesShareARank() {
+        leaderboard.submit(player(1), "a", 1000);
+        leaderboard.submit(player(2), "b", 2000);
+        leaderboard.submit(player(3), "c", 2000);
+        leaderboard.submit(player(4), "d", 3000);
+
+        assertEquals(1, leaderboard.getRank(player(1)));
+        assertEquals(2, leaderboard.getRank(player(2)));
+        assertEquals(2, leaderboard.getRank(player(3)));
+        assertEquals(4, leaderboard.getRank(player(4)));
+    }
+
+    @Test
+    void topIsLimited() {
+        for (int i = 1; i <= 5; i++) {
+            leaderboard.submit(player(i), "p" + i, i * 100L);
+        }
+        assertTrue(leaderboard.getTop(0).isEmpty());
+        assertEquals(List.of(player(1), player(2)), players(leaderboard.getTop(2)));
+        assertEquals(5, leaderboard.getTop(100).size());
+    }
+
+    @Test
+    void aroundIsClippedAtBothEnds() {
+        for (int i = 1; i <= 5; i++) {
+            leaderboard.submit(player(i), "p" + i, i * 100L);
+        }
+        assertEquals(List.of(player(1), player(2), player(3)), players(leaderboard.getAround(player(1), 2)));
+        assertEquals(List.of(player(2), player(3), player(4)), players(leaderboard.getAround(player(3), 1)));
+        assertEquals(List.of(player(4), player(5)), players(leaderboard.getAround(player(5), 1)));
+        assertEquals(List.of(player(3)), players(leaderboard.getAround(player(3), 0)));
+        assertEquals(5, leaderboard.getAround(player(3), 10).size());
+    }
+
+    @Test
+    void matchesASortedListUnderRandomSubmissions() {
+        Random random = new Random(42);
+        Map<UUID, Long> best = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            UUID playerId = player(random.nextInt(300));
+            long time = 1000 + random.nextInt(2000);
+            boolean faster = !best.containsKey(playerId) || time < best.get(playerId);
+            assertEquals(faster, leaderboard.submit(playerId, "p", time));
+            if (faster) {
+                best.put(playerId, time);
+            }
+        }
+
+        List<LeaderboardEntry> expected = new ArrayList<>();
+        best.forEach((playerId, time) -> expected.add(new LeaderboardEntry(playerId, "p", time)));
+        expected.sort(Comparator.comparingLong(LeaderboardEntry::timeMillis).thenComparing(LeaderboardEntry::playerId));
+
+        assertEquals(expected.size(), leaderboard.size());
+        assertEquals(expected, leaderboard.getTop(Integer.MAX_VALUE));
+        for (int i = 0; i < expected.size(); i++) {
+            LeaderboardEntry entry = expected.get(i);
+            long faster = expected.stream().filter(other -> other.timeMillis() < entry.timeMillis()).count();
+            assertEquals(faster + 1, leaderboard.getRank(entry.playerId()));
+            assertEquals(expected.subList(Math.max(0, i - 3), Math.min(expected.size(), i + 4)),
+                    leaderboard.getAround(entry.playerId(), 3));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.oceanami.parkour.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkMaskTest {
+
+    @Test
+    void emptyMaskContainsNothing() {
+        ChunkMask mask = new ChunkMask(List.of());
+        assertFalse(mask.contains(0, 0));
+        assertFalse(mask.contains(-1, -1));
+    }
+
+    @Test
+    void bitmapContainsExactlyItsChunks() {
+        ChunkMask mask = new ChunkMask(List.of(ChunkMask.key(-2, -3), ChunkMask.key(5, 7), ChunkMask.key(0, 0)));
+        assertTrue(mask.contains(-2, -3));
+        assertTrue(mask.contains(5, 7));
+        assertTrue(mask.contains(0, 0));
+        assertFalse(mask.contains(-3, -3));
+        assertFalse(mask.contains(6, 7));
+        assertFalse(mask.contains(5, 8));
+        assertFalse(mask.contains(-2, 7));
+        assertFalse(mask.contains(1, 0));
+    }
+
+    @Test
+    void singleChunk() {
+        ChunkMask mask = new ChunkMask(List.of(ChunkMask.key(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+        assertTrue(mask.contains(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertFalse(mask.contains(Integer.MAX_VALUE, Integer.MIN_VALUE));
+        assertFalse(mask.contains(0, 0));
+    }
+
+    @Test
+    void widelySpreadChunksFallBackToTheHashSet() {
+        // The bounding box of the corners of the world border is far beyond the bitmap limit
+        int edge = 30_000_000 >> 4;
+        Set<Long> keys = Set.of(ChunkMask.key(-edge, -edge), ChunkMask.key(edge, edge), ChunkMask.key(edge, -edge), ChunkMask.key(0, 0));
+        ChunkMask mask = new ChunkMask(keys);
+        assertTrue(mask.contains(-edge, -edge));
+        assertTrue(mask.contains(edge, edge));
+        assertTrue(mask.contains(edge, -edge));
+        assertTrue(mask.contains(0, 0));
+        assertFalse(mask.contains(-edge, edge));
+        assertFalse(mask.contains(1, 0));
+    }
+
+    @Test
+    void bothLayoutsMatchASet() {
+        Random random = new Random(3);
+        for (int spread : new int[]{100, 1_000_000}) {
+            Set<Long> keys = new HashSet<>();
+            for (int i = 0; i < 500; i++) {
+                keys.add(ChunkMask.key(random.nextInt(spread) - spread / 2, random.nextInt(spread) - spread / 2));
+            }
+            ChunkMask mask = new ChunkMask(keys);
+            for (long key : keys) {
+                assertTrue(mask.contains((int) (key >> 32), (int) key));
+            }
+            for (int i = 0; i < 5000; i++) {
+                int x = random.nextInt(spread) - spread / 2;
+                int z = random.nextInt(spread) - spread / 2;
+                assertEquals(keys.contains(ChunkMask.key(x, z)), mask.contains(x, z));
+            }
+        }
+    }
+}
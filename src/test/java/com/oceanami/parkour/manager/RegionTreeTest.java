@@ -0,0 +1,108 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.TriggerType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionTreeTest {
+
+    private static RegionTrigger region(int id, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        CuboidRegion region = new CuboidRegion(id, TriggerType.CHECKPOINT, id, "world", minX, minY, minZ, maxX, maxY, maxZ);
+        return new RegionTrigger(region, new CourseTrigger(1, "course", TriggerType.CHECKPOINT, id));
+    }
+
+    private static Set<RegionTrigger> query(RegionTree tree, double x, double y, double z) {
+        RegionTrigger[] out = new RegionTrigger[64];
+        int hits = tree.query(x, y, z, out);
+        return new HashSet<>(Arrays.asList(out).subList(0, hits));
+    }
+
+    @Test
+    void emptyTreeFindsNothing() {
+        RegionTree tree = new RegionTree(List.of());
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.query(0, 0, 0, new RegionTrigger[4]));
+    }
+
+    @Test
+    void boundsIncludeTheWholeMaxBlock() {
+        RegionTrigger gate = region(1, -2, 60, -2, 1, 61, 1);
+        RegionTree tree = new RegionTree(List.of(gate));
+
+        assertEquals(Set.of(gate), query(tree, -2.0, 60.0, -2.0));
+        assertEquals(Set.of(gate), query(tree, 1.999, 61.999, 1.999));
+        assertEquals(Set.of(), query(tree, 2.0, 61.0, 1.0));
+        assertEquals(Set.of(), query(tree, 1.0, 62.0, 1.0));
+        assertEquals(Set.of(), query(tree, -2.001, 60.0, -2.0));
+        assertEquals(Set.of(), query(tree, 0.0, 59.999, 0.0));
+    }
+
+    @Test
+    void overlappingRegionsAreAllReported() {
+        RegionTrigger outer = region(1, 0, 0, 0, 20, 20, 20);
+        RegionTrigger inner = region(2, 5, 5, 5, 6, 6, 6);
+        RegionTrigger apart = region(3, 30, 0, 30, 31, 1, 31);
+        RegionTree tree = new RegionTree(List.of(outer, inner, apart));
+
+        assertEquals(Set.of(outer, inner), query(tree, 5.5, 5.5, 5.5));
+        assertEquals(Set.of(outer), query(tree, 10, 10, 10));
+        assertEquals(Set.of(apart), query(tree, 30.5, 0.5, 30.5));
+    }
+
+    @Test
+    void hitsAreCappedAtTheOutputLength() {
+        List<RegionTrigger> stacked = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            stacked.add(region(i, 0, 0, 0, 3, 3, 3));
+        }
+        RegionTree tree = new RegionTree(stacked);
+
+        RegionTrigger[] out = new RegionTrigger[2];
+        assertEquals(2, tree.query(1, 1, 1, out));
+        assertEquals(0, tree.query(1, 1, 1, new RegionTrigger[0]));
+    }
+
+    @Test
+    void matchesABruteForceScanOverSeveralLevels() {
+        Random random = new Random(11);
+        List<RegionTrigger> regions = new ArrayList<>();
+        // Enough regions for leaves, branches and a root above them
+        for (int i = 0; i < 1500; i++) {
+            int x = random.nextInt(2000) - 1000;
+            int y = random.nextInt(100);
+            int z = random.nextInt(2000) - 1000;
+            regions.add(region(i, x, y, z, x + random.nextInt(30), y + random.nextInt(10), z + random.nextInt(30)));
+        }
+        RegionTree tree = new RegionTree(regions);
+        assertEquals(regions.size(), tree.size());
+
+        for (int i = 0; i < 20_000; i++) {
+            double x = random.nextDouble() * 2100 - 1050;
+            double y = random.nextDouble() * 120 - 10;
+            double z = random.nextDouble() * 2100 - 1050;
+            Set<RegionTrigger> expected = new HashSet<>();
+            for (RegionTrigger region : regions) {
+                if (region.region().contains(x, y, z)) {
+                    expected.add(region);
+                }
+            }
+            assertEquals(expected, query(tree, x, y, z));
+        }
+
+        // Every region is found from a point inside it
+        for (RegionTrigger region : regions) {
+            CuboidRegion box = region.region();
+            assertTrue(query(tree, box.minX() + 0.5, box.minY() + 0.5, box.minZ() + 0.5).contains(region));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.oceanami.parkour.manager;
+
+import com.oceanami.parkour.model.CuboidRegion;
+import com.oceanami.parkour.model.TriggerType;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TriggerIndexTest {
+
+    private static final UUID WORLD = new UUID(1L, 1L);
+    private static final UUID OTHER_WORLD = new UUID(2L, 2L);
+
+    private static CourseTrigger trigger(int courseId, TriggerType type) {
+        return new CourseTrigger(courseId, "course" + courseId, type, 0);
+    }
+
+    private static RegionTrigger region(TriggerType type, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return new RegionTrigger(new CuboidRegion(1, type, 0, "world", minX, minY, minZ, maxX, maxY, maxZ), trigger(1, type));
+    }
+
+    @Test
+    void emptyIndexHasNoTriggers() {
+        TriggerIndex index = TriggerIndex.EMPTY;
+        assertEquals(0, index.size());
+        assertEquals(0, index.regionCount());
+        assertNull(index.get(WORLD, 0, 64, 0));
+        assertFalse(index.hasTriggersInChunk(WORLD, 0, 0));
+        assertEquals(0, index.regionsAt(WORLD, 0.5, 64, 0.5, new RegionTrigger[4]));
+    }
+
+    @Test
+    void packKeepsNeighbouringAndExtremeBlocksApart() {
+        int[][] blocks = {
+                {0, 0, 0}, {1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {-1, 0, 0}, {0, -1, 0}, {0, 0, -1},
+                {-64, -64, -64}, {319, 319, 319}, {30_000_000, 319, -30_000_000}, {-30_000_000, -64, 30_000_000}
+        };
+        Map<Long, int[]> seen = new HashMap<>();
+        for (int[] block : blocks) {
+            int[] previous = seen.put(TriggerIndex.pack(block[0], block[1], block[2]), block);
+            assertNull(previous, "blocks share a key");
+        }
+    }
+
+    @Test
+    void findsPlatesAtTheirExactBlock() {
+        CourseTrigger start = trigger(1, TriggerType.START);
+        CourseTrigger finish = trigger(1, TriggerType.FINISH);
+        TriggerIndex index = TriggerIndex.builder()
+                .add(WORLD, 10, 64, -20, start)
+                .add(WORLD, -30_000_000, -64, 30_000_000, finish)
+                .build();
+
+        assertEquals(2, index.size());
+        assertSame(start, index.get(WORLD, 10, 64, -20));
+        assertSame(finish, index.get(WORLD, -30_000_000, -64, 30_000_000));
+        assertNull(index.get(WORLD, 10, 65, -20));
+        assertNull(index.get(WORLD, 11, 64, -20));
+        assertNull(index.get(OTHER_WORLD, 10, 64, -20));
+    }
+
+    @Test
+    void laterPlateOnTheSameBlockReplacesTheEarlierOne() {
+        CourseTrigger replacement = trigger(2, TriggerType.CHECKPOINT);
+        TriggerIndex index = TriggerIndex.builder()
+                .add(WORLD, 0, 64, 0, trigger(1, TriggerType.START))
+                .add(WORLD, 0, 64, 0, replacement)
+                .build();
+        assertEquals(1, index.size());
+        assertSame(replacement, index.get(WORLD, 0, 64, 0));
+    }
+
+    @Test
+    void matchesAMapForManyClusteredPlates() {
+        Random random = new Random(7);
+        Map<Long, CourseTrigger> expected = new HashMap<>();
+        TriggerIndex.Builder builder = TriggerIndex.builder();
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(64) - 32;
+            int y = random.nextInt(16) + 60;
+            int z = random.nextInt(64) - 32;
+            CourseTrigger trigger = trigger(i, TriggerType.CHECKPOINT);
+            builder.add(WORLD, x, y, z, trigger);
+            expected.put(TriggerIndex.pack(x, y, z), trigger);
+        }
+        TriggerIndex index = builder.build();
+
+        assertEquals(expected.size(), index.size());
+        for (int x = -33; x <= 32; x++) {
+            for (int y = 59; y <= 76; y++) {
+                for (int z = -33; z <= 32; z++) {
+                    assertSame(expected.get(TriggerIndex.pack(x, y, z)), index.get(WORLD, x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    void chunkMaskCoversPlatesAndStartRegionsOnly() {
+        TriggerIndex index = TriggerIndex.builder()
+                .add(WORLD, -1, 64, -1, trigger(1, TriggerType.CHECKPOINT))
+                .addRegion(WORLD, region(TriggerType.START, 100, 60, 100, 130, 70, 100))
+                .addRegion(WORLD, region(TriggerType.FAIL, 500, 0, 500, 510, 10, 510))
+                .build();
+
+        assertTrue(index.hasTriggersInChunk(WORLD, -1, -1));
+        assertFalse(index.hasTriggersInChunk(WORLD, 0, 0));
+        assertFalse(index.hasTriggersInChunk(WORLD, -1, 0));
+        assertTrue(index.hasTriggersInChunk(WORLD, 6, 6));
+        assertTrue(index.hasTriggersInChunk(WORLD, 8, 6));
+        assertFalse(index.hasTriggersInChunk(WORLD, 9, 6));
+        // Only players in a session reach other region types, and they skip the mask
+        assertFalse(index.hasTriggersInChunk(WORLD, 31, 31));
+        assertFalse(index.hasTriggersInChunk(OTHER_WORLD, -1, -1));
+        assertEquals(2, index.regionCount());
+    }
+
+    @Test
+    void regionsAreLookedUpPerWorld() {
+        TriggerIndex index = TriggerIndex.builder()
+                .addRegion(WORLD, region(TriggerType.FINISH, 0, 60, 0, 2, 62, 2))
+                .build();
+        RegionTrigger[] out = new RegionTrigger[4];
+        assertEquals(1, index.regionsAt(WORLD, 2.99, 62.99, 2.99, out));
+        assertEquals(0, index.regionsAt(WORLD, 3.0, 62.0, 2.0, out));
+        assertEquals(0, index.regionsAt(OTHER_WORLD, 1.0, 61.0, 1.0, out));
+    }
+
+    @Test
+    void replaceWorldsSharesUntouchedWorldsAndDropsEmptiedOnes() {
+        CourseTrigger kept = trigger(1, TriggerType.START);
+        CourseTrigger replaced = trigger(2, TriggerType.START);
+        TriggerIndex index = TriggerIndex.builder()
+                .add(WORLD, 0, 64, 0, kept)
+                .add(OTHER_WORLD, 0, 64, 0, replaced)
+                .build();
+
+        CourseTrigger added = trigger(3, TriggerType.FINISH);
+        TriggerIndex rebuilt = TriggerIndex.builder().add(OTHER_WORLD, 5, 64, 5, added).build();
+        TriggerIndex updated = index.replaceWorlds(Set.of(OTHER_WORLD), rebuilt);
+        assertSame(kept, updated.get(WORLD, 0, 64, 0));
+        assertNull(updated.get(OTHER_WORLD, 0, 64, 0));
+        assertSame(added, updated.get(OTHER_WORLD, 5, 64, 5));
+        assertEquals(2, updated.size());
+
+        TriggerIndex emptied = updated.replaceWorlds(List.of(OTHER_WORLD), TriggerIndex.EMPTY);
+        assertEquals(1, emptied.size());
+        assertNull(emptied.get(OTHER_WORLD, 5, 64, 5));
+        assertFalse(emptied.hasTriggersInChunk(OTHER_WORLD, 0, 0));
+
+        // The original index is left as it was
+        assertSame(replaced, index.get(OTHER_WORLD, 0, 64, 0));
+        assertEquals(2, index.size());
+    }
+}
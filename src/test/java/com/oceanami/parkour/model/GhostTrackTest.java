@@ -0,0 +1,163 @@
+package com.oceanami.parkour.model;
+
+import org.bukkit.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GhostTrackTest {
+
+    /**
+     * Encodes frames of {x, y, z, yaw, pitch} the way a recorder does.
+     */
+    private static GhostTrack encode(double[][] frames) {
+        byte[] data = new byte[frames.length * GhostTrack.MAX_FRAME_BYTES];
+        int length = 0;
+        int lastX = 0, lastY = 0, lastZ = 0;
+        byte lastYaw = 0, lastPitch = 0;
+        for (double[] frame : frames) {
+            int x = GhostTrack.quantize(frame[0]);
+            int y = GhostTrack.quantize(frame[1]);
+            int z = GhostTrack.quantize(frame[2]);
+            byte yaw = GhostTrack.quantizeAngle((float) frame[3]);
+            byte pitch = GhostTrack.quantizeAngle((float) frame[4]);
+            length = GhostTrack.writeVarInt(data, length, x - lastX);
+            length = GhostTrack.writeVarInt(data, length, y - lastY);
+            length = GhostTrack.writeVarInt(data, length, z - lastZ);
+            data[length++] = (byte) (yaw - lastYaw);
+            data[length++] = (byte) (pitch - lastPitch);
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+            lastYaw = yaw;
+            lastPitch = pitch;
+        }
+        return new GhostTrack(UUID.randomUUID(), "runner", 1, "world", 1000L, frames.length, Arrays.copyOf(data, length));
+    }
+
+    private static void assertAngle(double expected, float actual) {
+        double difference = Math.abs(((expected - actual) % 360 + 540) % 360 - 180);
+        assertTrue(difference <= 360.0 / 256 / 2 + 1e-4, "expected " + expected + " but was " + actual);
+    }
+
+    @Test
+    void varIntsUseOneByteForSmallDeltasAndFiveAtTheExtremes() {
+        byte[] out = new byte[5];
+        assertEquals(1, GhostTrack.writeVarInt(out, 0, 0));
+        assertEquals(1, GhostTrack.writeVarInt(out, 0, 63));
+        assertEquals(1, GhostTrack.writeVarInt(out, 0, -64));
+        assertEquals(2, GhostTrack.writeVarInt(out, 0, 64));
+        assertEquals(2, GhostTrack.writeVarInt(out, 0, -65));
+        assertEquals(5, GhostTrack.writeVarInt(out, 0, Integer.MAX_VALUE));
+        assertEquals(5, GhostTrack.writeVarInt(out, 0, Integer.MIN_VALUE));
+    }
+
+    @Test
+    void emptyTrackHasNoFrames() {
+        GhostTrack track = new GhostTrack(UUID.randomUUID(), "runner", 1, "world", 0L, 0, new byte[0]);
+        assertFalse(track.cursor().next());
+    }
+
+    @Test
+    void roundTripsPositionsToTheQuantizationStep() {
+        double[][] frames = {
+                {0.5, 64.0, -0.5, 0, 0},
+                {0.6, 64.0, -0.4, 10, 5},
+                {-1000.03125, -64.0, 1000.96875, -90, -90},
+                {29_999_999.5, 319.9, -29_999_999.5, 179, 90},
+                {-29_999_999.5, -64.0, 29_999_999.5, -179, 0}
+        };
+        GhostTrack track = encode(frames);
+        GhostTrack.Cursor cursor = track.cursor();
+        Location location = new Location(null, 0, 0, 0);
+        for (double[] frame : frames) {
+            assertTrue(cursor.next());
+            cursor.apply(location);
+            assertEquals(frame[0], location.getX(), 0.5 / GhostTrack.POSITION_SCALE);
+            assertEquals(frame[1], location.getY(), 0.5 / GhostTrack.POSITION_SCALE);
+            assertEquals(frame[2], location.getZ(), 0.5 / GhostTrack.POSITION_SCALE);
+            assertAngle(frame[3], location.getYaw());
+            assertAngle(frame[4], location.getPitch());
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void anglesWrapAcrossTheSeam() {
+        double[][] frames = {
+                {0, 0, 0, 170, 0},
+                {0, 0, 0, -170, 0},
+                {0, 0, 0, 350, 0},
+                {0, 0, 0, -720, 0}
+        };
+        GhostTrack.Cursor cursor = encode(frames).cursor();
+        Location location = new Location(null, 0, 0, 0);
+        for (double[] frame : frames) {
+            assertTrue(cursor.next());
+            cursor.apply(location);
+            assertAngle(frame[3], location.getYaw());
+        }
+    }
+
+    @Test
+    void reportsWhetherThePitchChanged() {
+        GhostTrack.Cursor cursor = encode(new double[][]{
+                {0, 0, 0, 0, 30},
+                {1, 0, 0, 45, 30},
+                {2, 0, 0, 45, -30}
+        }).cursor();
+        assertTrue(cursor.next());
+        assertTrue(cursor.isPitchChanged());
+        assertTrue(cursor.next());
+        assertFalse(cursor.isPitchChanged());
+        assertTrue(cursor.next());
+        assertTrue(cursor.isPitchChanged());
+        assertAngle(-30, cursor.pitch());
+    }
+
+    @Test
+    void stopsAtTheFrameCount() {
+        GhostTrack full = encode(new double[][]{{0, 0, 0, 0, 0}, {1, 1, 1, 0, 0}, {2, 2, 2, 0, 0}});
+        GhostTrack shorter = new GhostTrack(full.playerId(), full.playerName(), full.courseId(), full.worldName(),
+                full.timeMillis(), 2, full.data());
+        GhostTrack.Cursor cursor = shorter.cursor();
+        assertTrue(cursor.next());
+        assertTrue(cursor.next());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void randomWalkStaysWithinOneStepOfTheRecording() {
+        Random random = new Random(5);
+        double[][] frames = new double[2000][];
+        double x = 100, y = 64, z = -100;
+        for (int i = 0; i < frames.length; i++) {
+            x += random.nextGaussian() * 0.3;
+            y += random.nextGaussian() * 0.1;
+            z += random.nextGaussian() * 0.3;
+            frames[i] = new double[]{x, y, z, random.nextFloat() * 360 - 180, random.nextFloat() * 180 - 90};
+        }
+        GhostTrack track = encode(frames);
+        // A walking frame fits the five to eight bytes the format is sized for
+        assertTrue(track.data().length <= frames.length * 8);
+
+        GhostTrack.Cursor cursor = track.cursor();
+        Location location = new Location(null, 0, 0, 0);
+        for (double[] frame : frames) {
+            assertTrue(cursor.next());
+            cursor.apply(location);
+            assertEquals(frame[0], location.getX(), 0.5 / GhostTrack.POSITION_SCALE);
+            assertEquals(frame[1], location.getY(), 0.5 / GhostTrack.POSITION_SCALE);
+            assertEquals(frame[2], location.getZ(), 0.5 / GhostTrack.POSITION_SCALE);
+            assertAngle(frame[3], location.getYaw());
+            assertAngle(frame[4], location.getPitch());
+        }
+        assertFalse(cursor.next());
+    }
+}
@@ -0,0 +1,149 @@
+package com.oceanami.parkour.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private final TimingWheel wheel = new TimingWheel();
+
+    /**
+     * Ticks until the task scheduled with {@code delay} has run and returns how many ticks that took.
+     */
+    private long ticksUntilRun(long delay) {
+        boolean[] ran = new boolean[1];
+        wheel.schedule(delay, () -> ran[0] = true);
+        long ticks = 0;
+        while (!ran[0]) {
+            wheel.tick();
+            ticks++;
+        }
+        return ticks;
+    }
+
+    @Test
+    void runsOnTheTickItIsDue() {
+        int[] runs = new int[1];
+        wheel.schedule(5, () -> runs[0]++);
+        for (int i = 0; i < 4; i++) {
+            wheel.tick();
+        }
+        assertEquals(0, runs[0]);
+        wheel.tick();
+        assertEquals(1, runs[0]);
+        assertEquals(0, wheel.size());
+
+        for (int i = 0; i < 200; i++) {
+            wheel.tick();
+        }
+        assertEquals(1, runs[0]);
+    }
+
+    @Test
+    void delaysBelowOneTickRunOnTheNextTick() {
+        assertEquals(1, ticksUntilRun(0));
+        assertEquals(1, ticksUntilRun(-20));
+    }
+
+    @Test
+    void runsOnTimeAcrossLevelBoundaries() {
+        long[] delays = {1, 63, 64, 65, 127, 128, 4095, 4096, 4097, 262_143, 262_144, 262_145};
+        for (long delay : delays) {
+            assertEquals(delay, ticksUntilRun(delay), "delay " + delay);
+        }
+    }
+
+    @Test
+    void runsOnTimeWhenTheWheelIsPartWayRound() {
+        for (int i = 0; i < 100; i++) {
+            wheel.tick();
+        }
+        long[] delays = {28, 63, 64, 3996, 3997, 4095, 4096, 4097};
+        for (long delay : delays) {
+            assertEquals(delay, ticksUntilRun(delay), "delay " + delay);
+        }
+    }
+
+    @Test
+    void runsTimeoutsBeyondTheWheelRange() {
+        long range = 1L << 24;
+        assertEquals(range - 1, ticksUntilRun(range - 1));
+        assertEquals(range + 5, ticksUntilRun(range + 5));
+    }
+
+    @Test
+    void runsTimeoutsDueOnTheSameTickInOneTick() {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int id = i;
+            wheel.schedule(70, () -> order.add(id));
+        }
+        assertEquals(3, wheel.size());
+        for (int i = 0; i < 69; i++) {
+            wheel.tick();
+        }
+        assertTrue(order.isEmpty());
+        wheel.tick();
+        assertEquals(3, order.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimeoutsNeverRun() {
+        boolean[] ran = new boolean[1];
+        TimingWheel.Timeout timeout = wheel.schedule(100, () -> ran[0] = true);
+        assertTrue(timeout.isPending());
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.isPending());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.size());
+
+        for (int i = 0; i < 200; i++) {
+            wheel.tick();
+        }
+        assertFalse(ran[0]);
+    }
+
+    @Test
+    void cancelAfterRunningReportsNothingCancelled() {
+        TimingWheel.Timeout timeout = wheel.schedule(1, () -> { });
+        wheel.tick();
+        assertFalse(timeout.isPending());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void taskCanCancelAnotherTimeoutDueOnTheSameTick() {
+        boolean[] cancelledRan = new boolean[1];
+        // A slot runs its newest timeout first, so the canceller is scheduled last
+        TimingWheel.Timeout cancelled = wheel.schedule(3, () -> cancelledRan[0] = true);
+        wheel.schedule(3, cancelled::cancel);
+
+        for (int i = 0; i < 3; i++) {
+            wheel.tick();
+        }
+        assertFalse(cancelledRan[0]);
+        assertFalse(cancelled.isPending());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void taskCanScheduleAnotherTimeout() {
+        int[] runs = new int[1];
+        wheel.schedule(2, () -> wheel.schedule(0, () -> runs[0]++));
+        wheel.tick();
+        wheel.tick();
+        assertEquals(0, runs[0]);
+        assertEquals(1, wheel.size());
+        wheel.tick();
+        assertEquals(1, runs[0]);
+        assertEquals(0, wheel.size());
+    }
+}